@@ -0,0 +1,62 @@
+package fr.paolo.wattebled.bomberman.benchmark;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boards used by the benchmarks: "map1" is the map shipped with the tests, any number N
+ * is a generated N x N map with the same layout rules (metal border and pillars, random walls).
+ */
+public class Boards {
+    public static List<String> load(String board) {
+        if ("map1".equals(board)) {
+            return MapParsing.getMap("src/test/resources/maps/map1.rle");
+        }
+
+        int size = Integer.parseInt(board);
+        return MapParsing.encodeGrid(generate(size, size));
+    }
+
+    public static GameMap generate(int width, int height) {
+        Random random = new Random(42);
+        GameMap map = new GameMap(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean border = x == 0 || y == 0 || x == width - 1 || y == height - 1;
+                boolean pillar = x % 2 == 0 && y % 2 == 0;
+                if (border || pillar) {
+                    map.set(x, y, 'M');
+                } else {
+                    map.set(x, y, random.nextInt(3) == 0 ? 'W' : 'G');
+                }
+            }
+        }
+
+        // Keep the spawn corners free
+        map.set(1, 1, 'G');
+        map.set(2, 1, 'G');
+        map.set(1, 2, 'G');
+        return map;
+    }
+
+    public static GameModel game(List<String> map) {
+        GameModel game = new GameModel()
+                .withId(1L)
+                .withState(GameState.RUNNING)
+                .withPlayers(new ArrayList<>())
+                .withMap(map);
+        GameMap grid = MapParsing.decodeGrid(map);
+        int[][] spawns = {{1, 1}, {grid.getWidth() - 2, 1}, {grid.getWidth() - 2, grid.getHeight() - 2}, {1, grid.getHeight() - 2}};
+        for (int i = 0; i < spawns.length; i++) {
+            game.players.add(new PlayerModel((long) i, 3, "player" + i, spawns[i][0], spawns[i][1], game));
+        }
+        return game;
+    }
+}
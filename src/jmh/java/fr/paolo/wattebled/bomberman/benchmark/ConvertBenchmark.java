@@ -0,0 +1,41 @@
+package fr.paolo.wattebled.bomberman.benchmark;
+
+import fr.paolo.wattebled.bomberman.converter.FromModelToEntityConvert;
+import fr.paolo.wattebled.bomberman.converter.ModelCopier;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConvertBenchmark {
+    @Param({"map1", "101", "255"})
+    String board;
+
+    GameModel stored;
+    GameModel live;
+
+    @Setup
+    public void setup() {
+        stored = Boards.game(Boards.load(board));
+        live = Boards.game(stored.map);
+        live.grid = MapParsing.decodeGrid(live.map);
+    }
+
+    @Benchmark
+    public GameEntity convertGame() {
+        return FromModelToEntityConvert.convertGame(stored);
+    }
+
+    // What a response or a write-behind flush pays for a game held by the engine
+    @Benchmark
+    public GameEntity snapshotAndConvert() {
+        return FromModelToEntityConvert.convertGame(ModelCopier.copyGame(live));
+    }
+}
@@ -0,0 +1,49 @@
+package fr.paolo.wattebled.bomberman.benchmark;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.service.GameRules;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GameRulesBenchmark {
+    @Param({"map1", "101", "255"})
+    String board;
+
+    GameModel game;
+
+    @Setup
+    public void setup() {
+        game = Boards.game(Boards.load(board));
+        game.grid = MapParsing.decodeGrid(game.map);
+    }
+
+    @Benchmark
+    public boolean isMoveLegal() {
+        return GameRules.isMoveLegal(game.grid, 1, 1, 2, 1);
+    }
+
+    // Repeated explosions on the same cell do the same amount of work every time
+    @Benchmark
+    public GameModel explode() {
+        game.state = GameState.RUNNING;
+        GameRules.explode(game, GameRules.blast(game.grid, 2, 1, 1));
+        return game;
+    }
+
+    // Rewinds the ring so every invocation fills the outermost one again
+    @Benchmark
+    public GameModel shrink() {
+        game.state = GameState.RUNNING;
+        game.shrinkLevel = 0;
+        GameRules.shrink(game);
+        return game;
+    }
+}
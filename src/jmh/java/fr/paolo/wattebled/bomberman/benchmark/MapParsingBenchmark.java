@@ -0,0 +1,49 @@
+package fr.paolo.wattebled.bomberman.benchmark;
+
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapParsingBenchmark {
+    @Param({"map1", "101", "255"})
+    String board;
+
+    List<String> rle;
+    List<String> decoded;
+    GameMap grid;
+
+    @Setup
+    public void setup() {
+        rle = Boards.load(board);
+        decoded = MapParsing.decodeMap(rle);
+        grid = MapParsing.decodeGrid(rle);
+    }
+
+    @Benchmark
+    public List<String> decodeMap() {
+        return MapParsing.decodeMap(rle);
+    }
+
+    @Benchmark
+    public List<String> encodeMap() {
+        return MapParsing.encodeMap(decoded);
+    }
+
+    @Benchmark
+    public GameMap decodeGrid() {
+        return MapParsing.decodeGrid(rle);
+    }
+
+    @Benchmark
+    public List<String> encodeGrid() {
+        return MapParsing.encodeGrid(grid);
+    }
+}
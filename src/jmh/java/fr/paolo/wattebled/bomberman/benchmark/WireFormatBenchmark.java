@@ -0,0 +1,51 @@
+package fr.paolo.wattebled.bomberman.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import fr.paolo.wattebled.bomberman.converter.FromModelToEntityConvert;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.presentation.rest.GameWireFormat;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.DetailGameResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WireFormatBenchmark {
+    @Param({"map1", "101", "255"})
+    String board;
+
+    // Configured as Quarkus configures the mapper of the REST endpoints
+    ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    GameEntity game;
+
+    @Setup
+    public void setup() {
+        game = FromModelToEntityConvert.convertGame(Boards.game(Boards.load(board)).withStartTime(LocalDateTime.now()));
+    }
+
+    // What every JSON response pays, a new body per request
+    @Benchmark
+    public byte[] json() throws JsonProcessingException {
+        DetailGameResponse response = new DetailGameResponse(LocalDateTime.now(), game.state, game.players.stream()
+                .map(p -> new DetailGameResponse.Player(p.id, p.name, p.lives, p.posX, p.posY))
+                .toList(), List.copyOf(game.map), game.id, game.version, game.mode);
+        return mapper.writeValueAsBytes(response);
+    }
+
+    // Paid once per game version, every other request of that version reuses the bytes
+    @Benchmark
+    public byte[] binary() {
+        return GameWireFormat.encode(game);
+    }
+}
@@ -0,0 +1,108 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous client of the game API. At most inFlight requests are sent at once, the
+ * others wait for a permit, so the load stays bounded whatever the number of games.
+ */
+public class ApiClient {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String url;
+    private final EndpointStats stats;
+    private final Semaphore inFlight;
+    // HTTP/2 would multiplex everything on one connection, and the server caps its concurrent streams
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(4, r -> {
+                Thread thread = new Thread(r, "load-http");
+                thread.setDaemon(true);
+                return thread;
+            }))
+            .build();
+
+    public ApiClient(String url, int inFlight, EndpointStats stats) {
+        this.url = url;
+        this.stats = stats;
+        this.inFlight = new Semaphore(inFlight);
+    }
+
+    public CompletableFuture<Reply> get(String endpoint, String path) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(url + path)).GET());
+    }
+
+    public CompletableFuture<Reply> post(String endpoint, String path, Object body) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(body))));
+    }
+
+    public CompletableFuture<Reply> patch(String endpoint, String path) {
+        return send(endpoint, HttpRequest.newBuilder(URI.create(url + path))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody()));
+    }
+
+    // Plain text answer, used for the server metrics
+    public String text(String path) {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create(url + path)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private CompletableFuture<Reply> send(String endpoint, HttpRequest.Builder request) {
+        inFlight.acquireUninterruptibly();
+        long start = System.nanoTime();
+        return client.sendAsync(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    inFlight.release();
+                    int status = error == null ? response.statusCode() : -1;
+                    stats.record(endpoint, status, System.nanoTime() - start);
+                    return new Reply(status, error == null ? parse(response.body()) : null);
+                });
+    }
+
+    private static String json(Object body) {
+        try {
+            return MAPPER.writeValueAsString(body);
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static JsonNode parse(byte[] body) {
+        try {
+            return body.length == 0 ? null : MAPPER.readTree(body);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public static class Reply {
+        public final int status;
+        public final JsonNode body;
+
+        Reply(int status, JsonNode body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        public boolean ok() {
+            return status == 200 || status == 202;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and status counts per endpoint. Latencies go through Micrometer timers, the same
+ * library the server reports with, so both sides compute percentiles the same way.
+ */
+public class EndpointStats {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, int status, long nanos) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, name -> new Endpoint(Timer.builder("load." + name)
+                .publishPercentiles(0.5, 0.99)
+                .distributionStatisticExpiry(java.time.Duration.ofDays(1))
+                .register(registry)));
+        stats.timer.record(nanos, TimeUnit.NANOSECONDS);
+        if (status == 429) {
+            stats.throttled.increment();
+        } else if (status < 0 || status >= 500) {
+            stats.errors.increment();
+        } else if (status >= 400) {
+            stats.rejected.increment();
+        }
+    }
+
+    public String report(double seconds) {
+        StringBuilder res = new StringBuilder(String.format("%-10s %10s %10s %10s %10s %8s %8s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "429 %", "4xx %", "err %"));
+        endpoints.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+            // Counters first, so they never include requests the snapshot does not
+            Endpoint stats = e.getValue();
+            long throttled = stats.throttled.sum();
+            long rejected = stats.rejected.sum();
+            long errors = stats.errors.sum();
+            HistogramSnapshot snapshot = stats.timer.takeSnapshot();
+            long count = snapshot.count();
+            res.append(String.format("%-10s %10d %10.1f %10.2f %10.2f %8.2f %8.2f %8.2f%n",
+                    e.getKey(),
+                    count,
+                    count / seconds,
+                    percentile(snapshot, 0.5),
+                    percentile(snapshot, 0.99),
+                    100.0 * throttled / Math.max(1, count),
+                    100.0 * rejected / Math.max(1, count),
+                    100.0 * errors / Math.max(1, count)));
+        });
+        return res.toString();
+    }
+
+    private static double percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static class Endpoint {
+        final Timer timer;
+        final LongAdder throttled = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Endpoint(Timer timer) {
+            this.timer = timer;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import java.time.Duration;
+
+public class LoadOptions {
+    String url = "http://localhost:8082";
+    int games = 1000;
+    int players = 4;
+    int inFlight = 512;
+    Duration duration = Duration.ofMinutes(2);
+    Duration rampUp = Duration.ofSeconds(30);
+    Duration report = Duration.ofSeconds(10);
+    String bot = "random";
+    String mode = "REALTIME";
+    double bombRate = 0.1;
+    Duration think = Duration.ofMillis(100);
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> options.url = value;
+                case "--games" -> options.games = Integer.parseInt(value);
+                case "--players" -> options.players = Math.max(2, Math.min(4, Integer.parseInt(value)));
+                case "--in-flight" -> options.inFlight = Integer.parseInt(value);
+                case "--duration" -> options.duration = Duration.ofSeconds(Long.parseLong(value));
+                case "--ramp-up" -> options.rampUp = Duration.ofSeconds(Long.parseLong(value));
+                case "--report" -> options.report = Duration.ofSeconds(Long.parseLong(value));
+                case "--bot" -> options.bot = value;
+                case "--mode" -> options.mode = value;
+                case "--bomb-rate" -> options.bombRate = Double.parseDouble(value);
+                case "--think" -> options.think = Duration.ofMillis(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return "url=" + url + " games=" + games + " players=" + players + " in-flight=" + inFlight
+                + " duration=" + duration.toSeconds() + "s ramp-up=" + rampUp.toSeconds() + "s bot=" + bot
+                + " mode=" + mode + " bomb-rate=" + bombRate + " think=" + think.toMillis() + "ms";
+    }
+}
@@ -0,0 +1,91 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps --games simulated games running against a server for --duration seconds, starting a
+ * new game whenever one ends, and prints per endpoint throughput, latency percentiles and
+ * rejection rates every --report seconds, along with client and server thread counts.
+ */
+public class LoadTest {
+    private static final Pattern SERVER_THREADS = Pattern.compile("^jvm_threads_(live|peak)_threads(\\{[^}]*})? ([0-9.E]+)$", Pattern.MULTILINE);
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadOptions options = LoadOptions.parse(args);
+        EndpointStats stats = new EndpointStats();
+        ApiClient api = new ApiClient(options.url, options.inFlight, stats);
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "load-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        System.out.println("Load test: " + options);
+        long start = System.currentTimeMillis();
+        long deadline = start + options.duration.toMillis();
+        AtomicInteger running = new AtomicInteger();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        // Games are started evenly over the ramp up, then each one is replaced when it ends
+        long spacing = options.rampUp.toMillis() / Math.max(1, options.games);
+        for (int i = 0; i < options.games; i++) {
+            timer.schedule(() -> startGame(api, options, timer, deadline, running, completed, failed), i * spacing, TimeUnit.MILLISECONDS);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(Math.min(options.report.toMillis(), Math.max(1, deadline - System.currentTimeMillis())));
+            double elapsed = (System.currentTimeMillis() - start) / 1000.0;
+            System.out.printf("%n--- %.0fs, %d games running, %d games played, %d could not start ---%n",
+                    elapsed, running.get(), completed.get(), failed.get());
+            System.out.print(stats.report(elapsed));
+            System.out.printf("client threads: %d live, %d peak | server threads: %s%n",
+                    threads.getThreadCount(), threads.getPeakThreadCount(), serverThreads(api));
+        }
+
+        // Let the in-flight requests of the last games finish
+        timer.shutdown();
+        timer.awaitTermination(30, TimeUnit.SECONDS);
+        System.out.printf("%n=== Final, %d games played, %d could not start ===%n", completed.get(), failed.get());
+        System.out.print(stats.report((System.currentTimeMillis() - start) / 1000.0));
+    }
+
+    private static void startGame(ApiClient api, LoadOptions options, ScheduledExecutorService timer, long deadline,
+                                  AtomicInteger running, AtomicLong completed, AtomicLong failed) {
+        if (System.currentTimeMillis() >= deadline) {
+            return;
+        }
+
+        running.incrementAndGet();
+        new SimulatedGame(api, options, timer, deadline).run().whenComplete((started, e) -> {
+            running.decrementAndGet();
+            if (Boolean.TRUE.equals(started)) {
+                completed.incrementAndGet();
+                startGame(api, options, timer, deadline, running, completed, failed);
+            } else {
+                // Back off instead of hammering a server that refuses new games
+                failed.incrementAndGet();
+                timer.schedule(() -> startGame(api, options, timer, deadline, running, completed, failed), 1, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    // Read from the Prometheus endpoint of the server, when it is exposed
+    private static String serverThreads(ApiClient api) {
+        Matcher matcher = SERVER_THREADS.matcher(api.text("/q/metrics"));
+        StringBuilder res = new StringBuilder();
+        while (matcher.find()) {
+            res.append(matcher.group(1)).append(' ').append((long) Double.parseDouble(matcher.group(3))).append(' ');
+        }
+        return res.length() == 0 ? "n/a" : res.toString().trim();
+    }
+}
@@ -0,0 +1,141 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One game driven from creation to its end: the first bot creates it, the others join, it is
+ * started, then every bot acts in a loop until the game is over or the run ends.
+ * Bots: "random" moves to a random neighbour and may get 400s, "smart" only moves to cells
+ * the server reports as reachable, "idle" only polls the game.
+ */
+public class SimulatedGame {
+    private static final int[][] DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+    private final ApiClient api;
+    private final LoadOptions options;
+    private final ScheduledExecutorService timer;
+    private final long deadline;
+    private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+    private final Map<Long, int[]> positions = new ConcurrentHashMap<>();
+    private volatile long gameId;
+    private volatile boolean finished;
+    private final AtomicInteger activeBots = new AtomicInteger();
+
+    public SimulatedGame(ApiClient api, LoadOptions options, ScheduledExecutorService timer, long deadline) {
+        this.api = api;
+        this.options = options;
+        this.timer = timer;
+        this.deadline = deadline;
+    }
+
+    // Completes once the game is over, with false when it could not even be started
+    public CompletableFuture<Boolean> run() {
+        api.post("create", "/games", Map.of("name", "bot-0", "mode", options.mode))
+                .thenCompose(reply -> {
+                    if (!reply.ok() || reply.body == null) {
+                        throw new IllegalStateException("create failed with " + reply.status);
+                    }
+                    gameId = reply.body.get("id").asLong();
+                    CompletableFuture<ApiClient.Reply> joined = CompletableFuture.completedFuture(reply);
+                    for (int i = 1; i < options.players; i++) {
+                        String name = "bot-" + i;
+                        joined = joined.thenCompose(r -> api.post("join", "/games/" + gameId, Map.of("name", name)));
+                    }
+                    return joined;
+                })
+                .thenCompose(reply -> api.patch("start", "/games/" + gameId + "/start"))
+                .whenComplete((reply, error) -> {
+                    if (error != null || !reply.ok() || reply.body == null) {
+                        done.complete(false);
+                        return;
+                    }
+                    update(reply.body);
+                    positions.keySet().forEach(playerId -> {
+                        activeBots.incrementAndGet();
+                        schedule(playerId);
+                    });
+                });
+        return done;
+    }
+
+    private void schedule(long playerId) {
+        if (finished || System.currentTimeMillis() >= deadline) {
+            if (activeBots.decrementAndGet() == 0) {
+                done.complete(true);
+            }
+            return;
+        }
+
+        long think = options.think.toMillis();
+        long delay = think / 2 + ThreadLocalRandom.current().nextLong(think + 1);
+        timer.schedule(() -> act(playerId).whenComplete((r, e) -> schedule(playerId)), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<?> act(long playerId) {
+        String base = "/games/" + gameId;
+        int[] pos = positions.get(playerId);
+        if (options.bot.equals("idle") || pos == null) {
+            return api.get("get", base).thenAccept(this::onReply);
+        }
+
+        String player = base + "/players/" + playerId;
+        if (ThreadLocalRandom.current().nextDouble() < options.bombRate) {
+            return api.post("bomb", player + "/bomb", coords(pos[0], pos[1])).thenAccept(this::onReply);
+        }
+
+        if (options.bot.equals("smart")) {
+            return api.get("reachable", player + "/reachable").thenCompose(reply -> {
+                List<int[]> next = new ArrayList<>();
+                if (reply.ok() && reply.body != null) {
+                    reply.body.get("steps").forEach(step -> {
+                        if (step.get("distance").asInt() == 1) {
+                            next.add(new int[]{step.get("posX").asInt(), step.get("posY").asInt()});
+                        }
+                    });
+                }
+                if (next.isEmpty()) {
+                    return api.get("get", base).thenAccept(this::onReply);
+                }
+                int[] target = next.get(ThreadLocalRandom.current().nextInt(next.size()));
+                return api.post("move", player + "/move", coords(target[0], target[1])).thenAccept(this::onReply);
+            });
+        }
+
+        int[] direction = DIRECTIONS[ThreadLocalRandom.current().nextInt(DIRECTIONS.length)];
+        return api.post("move", player + "/move", coords(pos[0] + direction[0], pos[1] + direction[1]))
+                .thenAccept(this::onReply);
+    }
+
+    private void onReply(ApiClient.Reply reply) {
+        if (reply.ok() && reply.body != null) {
+            update(reply.body);
+        } else if (reply.status == 404) {
+            finished = true;
+        }
+    }
+
+    private void update(JsonNode game) {
+        if ("FINISHED".equals(game.path("state").asText())) {
+            finished = true;
+        }
+        game.path("players").forEach(p -> {
+            if (p.get("lives").asInt() > 0) {
+                positions.put(p.get("id").asLong(), new int[]{p.get("posX").asInt(), p.get("posY").asInt()});
+            } else {
+                positions.remove(p.get("id").asLong());
+            }
+        });
+    }
+
+    private static Map<String, Integer> coords(int x, int y) {
+        return Map.of("posX", x, "posY", y);
+    }
+}
@@ -0,0 +1,137 @@
+package fr.paolo.wattebled.bomberman.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the packaged server --runs times and measures how long it takes to answer
+ * /q/health/ready, along with the startup time Quarkus logs. The server gets the environment of
+ * this process, so the JWS_ variables and the database must be set up as for a normal start.
+ * Options: --runner (a native executable instead of the jar), --jar, --appcds, --profile,
+ * --port, --runs, --timeout.
+ */
+public class StartupBenchmark {
+    private static final Pattern STARTED = Pattern.compile("started in ([0-9.]+)s");
+
+    public static void main(String[] args) throws Exception {
+        String jar = "target/quarkus-app/quarkus-run.jar";
+        String runner = null;
+        boolean appcds = false;
+        String profile = null;
+        int port = 8090;
+        int runs = 5;
+        Duration timeout = Duration.ofSeconds(60);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--jar" -> jar = value;
+                case "--runner" -> runner = value;
+                case "--appcds" -> appcds = Boolean.parseBoolean(value);
+                case "--profile" -> profile = value;
+                case "--port" -> port = Integer.parseInt(value);
+                case "--runs" -> runs = Integer.parseInt(value);
+                case "--timeout" -> timeout = Duration.ofSeconds(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<String> command = new ArrayList<>();
+        if (runner != null) {
+            command.add(runner);
+        } else {
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            if (appcds) {
+                Path archive = Path.of(jar).resolveSibling("app-cds.jsa");
+                if (!Files.exists(archive)) {
+                    throw new IllegalArgumentException(archive + " not found, package with -Pfast first");
+                }
+                command.add("-XX:SharedArchiveFile=" + archive);
+                command.add("-Xshare:on");
+            }
+            command.add("-jar");
+            command.add(jar);
+        }
+        command.add("-Dquarkus.http.port=" + port);
+        if (profile != null) {
+            command.add("-Dquarkus.profile=" + profile);
+        }
+        System.out.println("Startup benchmark: " + String.join(" ", command));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest ready = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/q/health/ready"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        List<Long> readyTimes = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            long start = System.nanoTime();
+            Process server = new ProcessBuilder(command).redirectErrorStream(true).start();
+            AtomicReference<String> started = new AtomicReference<>("n/a");
+            Thread output = new Thread(() -> readOutput(server, started), "server-output");
+            output.setDaemon(true);
+            output.start();
+
+            Long readyMillis = null;
+            try {
+                while (System.nanoTime() - start < timeout.toNanos() && server.isAlive()) {
+                    try {
+                        if (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                            readyMillis = (System.nanoTime() - start) / 1_000_000;
+                            break;
+                        }
+                    } catch (ConnectException e) {
+                        // Not listening yet
+                    } catch (IOException e) {
+                        // Listening but not answering yet
+                    }
+                    Thread.sleep(10);
+                }
+            } finally {
+                server.destroy();
+                server.waitFor();
+            }
+
+            if (readyMillis == null) {
+                System.out.printf("run %d: not ready after %ds (exit code %d)%n", run, timeout.toSeconds(), server.exitValue());
+                continue;
+            }
+            readyTimes.add(readyMillis);
+            System.out.printf("run %d: ready in %d ms, Quarkus reports %ss%n", run, readyMillis, started.get());
+        }
+
+        if (readyTimes.isEmpty()) {
+            System.out.println("No run got ready");
+            return;
+        }
+        readyTimes.sort(null);
+        System.out.printf("ready in ms: min %d, median %d, max %d over %d runs%n",
+                readyTimes.get(0), readyTimes.get(readyTimes.size() / 2), readyTimes.get(readyTimes.size() - 1), readyTimes.size());
+    }
+
+    private static void readOutput(Process server, AtomicReference<String> started) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(server.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    started.set(matcher.group(1));
+                }
+            }
+        } catch (IOException e) {
+            // The server was stopped
+        }
+    }
+}
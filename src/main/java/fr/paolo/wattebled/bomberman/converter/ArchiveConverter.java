@@ -0,0 +1,50 @@
+package fr.paolo.wattebled.bomberman.converter;
+
+import fr.paolo.wattebled.bomberman.data.model.GameArchiveModel;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+public class ArchiveConverter {
+    // The data column is the gzip of one "lives posX posY name" line per player,
+    // an empty line, then the RLE rows of the final map
+    public static GameArchiveModel archiveGame(GameModel gameModel) {
+        StringBuilder data = new StringBuilder();
+        gameModel.getPlayers().forEach(p -> data.append(p.lives).append(' ')
+                .append(p.posX).append(' ')
+                .append(p.posY).append(' ')
+                .append(p.name == null ? "" : p.name.replace('\n', ' '))
+                .append('\n'));
+        data.append('\n');
+        gameModel.getMap().forEach(row -> data.append(row).append('\n'));
+
+        List<PlayerModel> alive = gameModel.getPlayers().stream()
+                .filter(p -> p.lives > 0)
+                .toList();
+
+        return new GameArchiveModel(
+                gameModel.getId(),
+                gameModel.getMapName(),
+                gameModel.getStartTime(),
+                gameModel.getEndTime(),
+                gameModel.getPlayers().size(),
+                alive.size() == 1 ? alive.get(0).name : null,
+                gzip(data.toString()));
+    }
+
+    private static byte[] gzip(String data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(data.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
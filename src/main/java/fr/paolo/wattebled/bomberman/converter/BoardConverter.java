@@ -0,0 +1,29 @@
+package fr.paolo.wattebled.bomberman.converter;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Stores the RLE rows of a board in a single bytea column, one row per line, null while the game has no board of its own
+@Converter
+public class BoardConverter implements AttributeConverter<List<String>, byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(List<String> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return null;
+        }
+        return String.join("\n", rows).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Always a mutable list, the board is filled in place when the game starts
+    @Override
+    public List<String> convertToEntityAttribute(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(new String(data, StandardCharsets.US_ASCII).split("\n")));
+    }
+}
@@ -1,9 +1,12 @@
 package fr.paolo.wattebled.bomberman.converter;
 
 import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.GameSummaryModel;
 import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
 import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.GameSummaryEntity;
 import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
 
 import java.util.List;
 
@@ -19,18 +22,28 @@ public class FromModelToEntityConvert {
                 gameModel.getId(),
                 gameModel.getStartTime(),
                 gameModel.getState(),
+                gameModel.getMode() == null ? GameMode.REALTIME : gameModel.getMode(),
+                gameModel.getVersion(),
                 playerEntities,
                 gameModel.getMap());
     }
 
+    public static GameSummaryEntity convertSummary(GameSummaryModel summaryModel) {
+        if (summaryModel == null) {
+            return null;
+        }
+        return new GameSummaryEntity(
+                summaryModel.getId(),
+                summaryModel.getPlayerCount(),
+                summaryModel.getState());
+    }
+
     public static PlayerEntity convertPlayer(PlayerModel playerModel) {
         if (playerModel == null) {
             return null;
         }
         return new PlayerEntity(
                 playerModel.getId(),
-                playerModel.getLastBomb(),
-                playerModel.getLastMovement(),
                 playerModel.getLives(),
                 playerModel.getName(),
                 playerModel.getPosX(),
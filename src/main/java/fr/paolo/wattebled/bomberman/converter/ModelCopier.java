@@ -0,0 +1,86 @@
+package fr.paolo.wattebled.bomberman.converter;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ModelCopier {
+    public static GameModel copyGame(GameModel gameModel) {
+        if (gameModel == null) {
+            return null;
+        }
+        return copyGame(gameModel,
+                gameModel.getGrid() == null ? List.copyOf(gameModel.getMap()) : MapParsing.encodeGrid(gameModel.getGrid()),
+                gameModel.getGrid() == null ? MapParsing.decodeGrid(gameModel.getMap()) : gameModel.getGrid().copy());
+    }
+
+    // Copy holding the given board, already encoded and decoded by the caller
+    public static GameModel copyGame(GameModel gameModel, List<String> map, GameMap grid) {
+        GameModel copy = new GameModel(
+                gameModel.getId(),
+                gameModel.getStartTime(),
+                gameModel.getEndTime(),
+                gameModel.getState(),
+                gameModel.getShrinkLevel(),
+                gameModel.getVersion(),
+                gameModel.getTick(),
+                gameModel.getPlayerCount(),
+                gameModel.getMapName(),
+                gameModel.getMode(),
+                new ArrayList<>(),
+                map,
+                grid);
+        gameModel.getPlayers().forEach(p -> copy.players.add(copyPlayer(p).withGame(copy)));
+        return copy;
+    }
+
+    public static GameModel copyState(GameModel gameModel) {
+        GameModel copy = new GameModel()
+                .withId(gameModel.getId())
+                .withState(gameModel.getState())
+                .withMode(gameModel.getMode())
+                .withVersion(gameModel.getVersion())
+                .withPlayers(new ArrayList<>())
+                .withGrid(gameModel.getGrid().copy());
+        gameModel.getPlayers().forEach(p -> copy.players.add(copyPlayer(p)));
+        return copy;
+    }
+
+    public static PlayerModel copyPlayer(PlayerModel playerModel) {
+        if (playerModel == null) {
+            return null;
+        }
+        return new PlayerModel(
+                playerModel.getId(),
+                playerModel.getLives(),
+                playerModel.getName(),
+                playerModel.getPosX(),
+                playerModel.getPosY(),
+                null);
+    }
+
+    public static void applyGame(GameModel source, GameModel target) {
+        target.state = source.state;
+        target.startTime = source.startTime;
+        target.endTime = source.endTime;
+        target.shrinkLevel = source.shrinkLevel;
+        target.version = source.version;
+        target.tick = source.tick;
+        target.playerCount = source.playerCount;
+        target.mapName = source.mapName;
+        target.mode = source.mode;
+        target.map = new ArrayList<>(source.map);
+        source.players.forEach(p -> target.players.stream()
+                .filter(t -> t.id.equals(p.id))
+                .findFirst()
+                .ifPresent(t -> {
+                    t.lives = p.lives;
+                    t.posX = p.posX;
+                    t.posY = p.posY;
+                }));
+    }
+}
@@ -0,0 +1,19 @@
+package fr.paolo.wattebled.bomberman.data.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity @Table(name = "game_archive", indexes = @Index(name = "game_archive_end_idx", columnList = "endTime"))
+@AllArgsConstructor @NoArgsConstructor @With @ToString
+@Getter @Setter
+public class GameArchiveModel {
+    @Id public Long id;
+    public String mapName;
+    public LocalDateTime startTime;
+    public LocalDateTime endTime;
+    public int playerCount;
+    public String winner;
+    @ToString.Exclude public byte[] data;
+}
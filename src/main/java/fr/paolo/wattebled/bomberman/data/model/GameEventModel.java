@@ -0,0 +1,25 @@
+package fr.paolo.wattebled.bomberman.data.model;
+
+import fr.paolo.wattebled.bomberman.utils.GameEventType;
+import lombok.*;
+
+import javax.persistence.*;
+
+@Entity @Table(name = "game_event", indexes = @Index(name = "game_event_game_version_idx", columnList = "gameId, version"))
+@AllArgsConstructor @NoArgsConstructor @With @ToString
+@Getter @Setter
+public class GameEventModel {
+    // Sequence ids let Hibernate batch the inserts, identity columns would not
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_event_seq")
+    @SequenceGenerator(name = "game_event_seq", sequenceName = "game_event_seq", allocationSize = 64)
+    public Long id;
+    public long gameId;
+    public long version;
+    public long tick;
+    public GameEventType type;
+    public Long playerId;
+    public short posX;
+    public short posY;
+    public short value;
+    public String name;
+}
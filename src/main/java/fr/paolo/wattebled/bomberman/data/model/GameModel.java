@@ -1,21 +1,32 @@
 package fr.paolo.wattebled.bomberman.data.model;
 
+import fr.paolo.wattebled.bomberman.converter.BoardConverter;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
 import fr.paolo.wattebled.bomberman.utils.GameState;
 import lombok.*;
-import org.hibernate.annotations.LazyCollection;
-import org.hibernate.annotations.LazyCollectionOption;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.List;
 
-@Entity @Table(name = "game")
+@Entity @Table(name = "game", indexes = {@Index(name = "game_state_id_idx", columnList = "state, id"),
+        @Index(name = "game_state_end_idx", columnList = "state, endTime")})
 @AllArgsConstructor @NoArgsConstructor @With @ToString
 @Getter @Setter
 public class GameModel {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY) public Long id;
     public LocalDateTime startTime;
+    public LocalDateTime endTime;
     public GameState state;
+    public int shrinkLevel;
+    public long version;
+    // Ticks since the start, as of the last change
+    public long tick;
+    public int playerCount;
+    public String mapName;
+    public GameMode mode;
     @OneToMany(mappedBy = "game", orphanRemoval = true, cascade = CascadeType.ALL) public List<PlayerModel> players;
-    public @ElementCollection @CollectionTable(name = "game_map", joinColumns = @JoinColumn(name = "game_id")) @LazyCollection(LazyCollectionOption.FALSE) List<String> map;
+    @Convert(converter = BoardConverter.class) @Column(name = "board") public List<String> map;
+    @Transient public GameMap grid;
 }
\ No newline at end of file
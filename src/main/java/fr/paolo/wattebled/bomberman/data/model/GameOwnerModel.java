@@ -0,0 +1,16 @@
+package fr.paolo.wattebled.bomberman.data.model;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity @Table(name = "game_owner")
+@AllArgsConstructor @NoArgsConstructor @With @ToString
+@Getter @Setter
+public class GameOwnerModel {
+    @Id public Long gameId;
+    public String nodeId;
+    public String nodeUrl;
+    public LocalDateTime leaseUntil;
+}
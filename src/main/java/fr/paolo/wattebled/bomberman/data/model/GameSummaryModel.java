@@ -0,0 +1,15 @@
+package fr.paolo.wattebled.bomberman.data.model;
+
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Projection of the game table used for listings, never loads players nor map rows
+@AllArgsConstructor @ToString
+@Getter
+public class GameSummaryModel {
+    public Long id;
+    public int playerCount;
+    public GameState state;
+}
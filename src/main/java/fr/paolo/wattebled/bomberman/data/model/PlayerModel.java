@@ -9,8 +9,6 @@ import javax.persistence.*;
 @Getter @Setter
 public class PlayerModel {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY) public Long id;
-    public Long lastBomb;
-    public Long lastMovement;
     public int lives;
     public String name;
     public int posX;
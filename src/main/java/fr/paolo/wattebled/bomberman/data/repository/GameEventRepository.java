@@ -0,0 +1,7 @@
+package fr.paolo.wattebled.bomberman.data.repository;
+
+import fr.paolo.wattebled.bomberman.data.model.GameEventModel;
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+
+public class GameEventRepository implements PanacheRepository<GameEventModel> {
+}
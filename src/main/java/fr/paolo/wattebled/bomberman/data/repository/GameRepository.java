@@ -1,7 +1,27 @@
 package fr.paolo.wattebled.bomberman.data.repository;
 
 import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.GameSummaryModel;
+import fr.paolo.wattebled.bomberman.utils.GameState;
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
 
+import javax.persistence.TypedQuery;
+import java.util.List;
+
 public class GameRepository implements PanacheRepository<GameModel> {
-}
\ No newline at end of file
+    // Keyset pagination on the id: the page starts right after the given id
+    public List<GameSummaryModel> listSummaries(GameState state, long after, int limit) {
+        String query = "select new fr.paolo.wattebled.bomberman.data.model.GameSummaryModel(g.id, g.playerCount, g.state)"
+                + " from GameModel g where g.id > :after"
+                + (state == null ? "" : " and g.state = :state")
+                + " order by g.id";
+        TypedQuery<GameSummaryModel> typed = getEntityManager()
+                .createQuery(query, GameSummaryModel.class)
+                .setParameter("after", after)
+                .setMaxResults(limit);
+        if (state != null) {
+            typed.setParameter("state", state);
+        }
+        return typed.getResultList();
+    }
+}
@@ -0,0 +1,13 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import lombok.*;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class ActionResult {
+    public ActionType type;
+    public int status;
+    public long tick;
+}
@@ -0,0 +1,9 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+@Value @AllArgsConstructor
+public class GameChangedEvent {
+    public Long gameId;
+}
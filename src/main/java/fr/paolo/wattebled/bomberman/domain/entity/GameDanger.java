@@ -0,0 +1,22 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class GameDanger {
+    public Long id;
+    public long tick;
+    public int tickDuration;
+    public List<Cell> cells;
+
+    @Value @AllArgsConstructor
+    public static class Cell {
+        public int posX;
+        public int posY;
+        public long tick;
+    }
+}
@@ -0,0 +1,33 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class GameDelta {
+    public Long id;
+    public long since;
+    public long version;
+    public GameState state;
+    public List<Cell> cells;
+    public List<Player> players;
+
+    @Value @AllArgsConstructor
+    public static class Cell {
+        public int posX;
+        public int posY;
+        public char tile;
+    }
+
+    @Value @AllArgsConstructor
+    public static class Player {
+        public Long id;
+        public Integer lives;
+        public Integer posX;
+        public Integer posY;
+    }
+}
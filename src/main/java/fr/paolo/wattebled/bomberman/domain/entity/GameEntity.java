@@ -1,5 +1,6 @@
 package fr.paolo.wattebled.bomberman.domain.entity;
 
+import fr.paolo.wattebled.bomberman.utils.GameMode;
 import fr.paolo.wattebled.bomberman.utils.GameState;
 import lombok.*;
 
@@ -13,6 +14,8 @@ public class GameEntity {
     public Long id;
     public LocalDateTime startTime;
     public GameState state;
+    public GameMode mode;
+    public long version;
     public List<PlayerEntity> players;
     public List<String> map;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class GamePath {
+    public Long id;
+    public long version;
+    public boolean reachable;
+    public List<Step> steps;
+
+    @Value @AllArgsConstructor
+    public static class Step {
+        public int posX;
+        public int posY;
+        public int distance;
+    }
+}
@@ -0,0 +1,13 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import lombok.*;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class GameSummaryEntity {
+    public Long id;
+    public int players;
+    public GameState state;
+}
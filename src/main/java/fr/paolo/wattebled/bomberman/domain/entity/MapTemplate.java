@@ -0,0 +1,15 @@
+package fr.paolo.wattebled.bomberman.domain.entity;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@With @Value @AllArgsConstructor
+public class MapTemplate {
+    public String name;
+    public List<String> rows;
+    public int width;
+    public int height;
+}
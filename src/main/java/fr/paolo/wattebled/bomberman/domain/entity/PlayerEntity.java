@@ -9,8 +9,6 @@ import java.time.LocalDateTime;
 @With @Value @AllArgsConstructor
 public class PlayerEntity {
     public Long id;
-    public Long lastBomb;
-    public Long lastMovement;
     public int lives;
     public String name;
     public int posX;
@@ -0,0 +1,121 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.domain.entity.ActionResult;
+import fr.paolo.wattebled.bomberman.domain.entity.GameAction;
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies a queue of actions for one player in order. An action still on cooldown is retried
+ * on the tick where the cooldown ends instead of being rejected. The tick thread only hands the
+ * retries over to a small pool, since applying an action may have to load the game.
+ */
+@ApplicationScoped
+public class ActionBatchService {
+    private static final Logger LOGGER = Logger.getLogger(ActionBatchService.class);
+    public static final int MAX_ACTIONS = 16;
+    private static final int RETRY_THREADS = 4;
+
+    @Inject
+    GameService service;
+
+    @Inject
+    TickScheduler scheduler;
+
+    @ConfigProperty(name = "JWS_TICK_DURATION")
+    int tickDuration;
+
+    private final ExecutorService retries = Executors.newFixedThreadPool(RETRY_THREADS, r -> {
+        Thread thread = new Thread(r, "action-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    void shutdown() {
+        retries.shutdownNow();
+    }
+
+    public Batch submit(int gameId, int playerId, List<GameAction> actions) {
+        Batch batch = new Batch(gameId, playerId, actions);
+        runNext(batch);
+        return batch;
+    }
+
+    private void runNext(Batch batch) {
+        while (batch.results.size() < batch.actions.size()) {
+            GameAction action = batch.actions.get(batch.results.size());
+            int status;
+            try {
+                boolean applied = action.type == ActionType.MOVE
+                        ? service.movePlayer(batch.gameId, batch.playerId, action.posX, action.posY)
+                        : service.plantBomb(batch.gameId, batch.playerId, action.posX, action.posY);
+                status = applied ? 200 : 202;
+            } catch (NoSuchElementException e) {
+                status = 404;
+            } catch (BadRequestException e) {
+                status = 400;
+            } catch (ArithmeticException e) {
+                long wait;
+                try {
+                    wait = service.getRemainingCooldown(batch.gameId, batch.playerId, action.type);
+                } catch (RuntimeException ignored) {
+                    // The retry on the next tick reports why the action is not possible anymore
+                    wait = tickDuration;
+                }
+                int ticks = (int) Math.max(1, (wait + tickDuration - 1) / tickDuration);
+                scheduler.schedule(batch.gameId, "action", ticks, () -> {
+                    retries.execute(() -> runNext(batch));
+                    return null;
+                });
+                return;
+            } catch (RuntimeException e) {
+                // Only this action fails, the game and its timers go on
+                LOGGER.errorf(e, "Could not apply a batched action of player %d in game %d", batch.playerId, batch.gameId);
+                status = 500;
+            }
+
+            batch.add(new ActionResult(action.type, status, scheduler.currentTick()));
+        }
+        batch.completion.complete(batch.getResults());
+    }
+
+    public static class Batch {
+        final int gameId;
+        final int playerId;
+        final List<GameAction> actions;
+        final List<ActionResult> results = new ArrayList<>();
+        final CompletableFuture<List<ActionResult>> completion = new CompletableFuture<>();
+
+        Batch(int gameId, int playerId, List<GameAction> actions) {
+            this.gameId = gameId;
+            this.playerId = playerId;
+            this.actions = List.copyOf(actions);
+        }
+
+        public CompletableFuture<List<ActionResult>> getCompletion() {
+            return completion;
+        }
+
+        // Results of the actions applied so far, used when the batch times out
+        public synchronized List<ActionResult> getResults() {
+            return List.copyOf(results);
+        }
+
+        synchronized void add(ActionResult result) {
+            results.add(result);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves and bombs waiting for the next tick of a TICK mode game, at most one of each per
+ * player, plus the tick of every player's last resolved action for cooldowns.
+ * Not thread safe, callers hold the game lock.
+ */
+public class ActionQueue {
+    // Sorted by player id so every resolution walks the players in the same order
+    private Map<Long, int[]> moves = new TreeMap<>();
+    private Map<Long, int[]> bombs = new TreeMap<>();
+    private final Map<Long, Long> lastMove = new HashMap<>();
+    private final Map<Long, Long> lastBomb = new HashMap<>();
+
+    public void queueMove(long playerId, int x, int y) {
+        moves.put(playerId, new int[]{x, y});
+    }
+
+    public void queueBomb(long playerId, int x, int y) {
+        bombs.put(playerId, new int[]{x, y});
+    }
+
+    public Map<Long, int[]> drainMoves() {
+        Map<Long, int[]> res = moves;
+        moves = new TreeMap<>();
+        return res;
+    }
+
+    public Map<Long, int[]> drainBombs() {
+        Map<Long, int[]> res = bombs;
+        bombs = new TreeMap<>();
+        return res;
+    }
+
+    public void moved(long playerId, long tick) {
+        lastMove.put(playerId, tick);
+    }
+
+    public void bombed(long playerId, long tick) {
+        lastBomb.put(playerId, tick);
+    }
+
+    // Ticks left before an action resolved on this tick would respect the cooldown, a queued one counts
+    public long moveCooldown(long playerId, long tick, int delay) {
+        long ticks = cooldown(lastMove.get(playerId), tick, delay);
+        return moves.containsKey(playerId) ? Math.max(1, ticks) : ticks;
+    }
+
+    public long bombCooldown(long playerId, long tick, int delay) {
+        long ticks = cooldown(lastBomb.get(playerId), tick, delay);
+        return bombs.containsKey(playerId) ? Math.max(1, ticks) : ticks;
+    }
+
+    private static long cooldown(Long last, long tick, int delay) {
+        return last == null ? 0 : Math.max(0, last + delay - tick);
+    }
+}
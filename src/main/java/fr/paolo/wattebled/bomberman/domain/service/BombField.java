@@ -0,0 +1,153 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.domain.entity.GameDanger;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+
+import java.util.*;
+
+/**
+ * Active bombs of one game, indexed by cell, with the tick at which every cell will be hit.
+ * A bomb caught in the blast of another one detonates with it, so its tick is the lowest of
+ * its own and of every bomb reaching it. Planting only propagates from the new bomb; a
+ * detonation rebuilds the remaining blasts since destroyed walls may have opened them.
+ * Not thread safe, callers hold the game lock.
+ */
+public class BombField {
+    private static final long SAFE = Long.MAX_VALUE;
+
+    private final int width;
+    private final Bomb[] cells;
+    private final long[] danger;
+    private final List<Bomb> bombs = new ArrayList<>();
+
+    public BombField(int width, int height) {
+        this.width = width;
+        this.cells = new Bomb[width * height];
+        this.danger = new long[width * height];
+        Arrays.fill(danger, SAFE);
+    }
+
+    public void plant(GameMap grid, int x, int y, int range, long dueTick) {
+        int index = y * width + x;
+        if (cells[index] != null) {
+            return;
+        }
+
+        Bomb bomb = new Bomb(x, y, range, dueTick);
+        bomb.tick = Math.min(dueTick, danger[index]);
+        bomb.blast = GameRules.blast(grid, x, y, range);
+        cells[index] = bomb;
+        bombs.add(bomb);
+        propagate(bomb);
+    }
+
+    // Removes the bomb on this cell and every bomb it chains into, empty when it already went off
+    public List<int[]> detonate(GameMap grid, int x, int y) {
+        Bomb first = cells[y * width + x];
+        return first == null ? List.of() : chain(grid, first);
+    }
+
+    // Same for the fuse of the bomb planted for dueTick, empty as well when that bomb went off in a
+    // chain and another one was planted on the cell since
+    public List<int[]> detonate(GameMap grid, int x, int y, long dueTick) {
+        Bomb first = cells[y * width + x];
+        return first == null || first.dueTick != dueTick ? List.of() : chain(grid, first);
+    }
+
+    private List<int[]> chain(GameMap grid, Bomb first) {
+        // Blasts are all computed on the board before any wall is destroyed
+        List<int[]> blasts = new ArrayList<>();
+        Deque<Bomb> chain = new ArrayDeque<>();
+        remove(first);
+        chain.add(first);
+        while (!chain.isEmpty()) {
+            Bomb bomb = chain.poll();
+            bomb.blast = GameRules.blast(grid, bomb.x, bomb.y, bomb.range);
+            blasts.add(bomb.blast);
+            for (int cell : bomb.blast) {
+                if (cells[cell] != null) {
+                    chain.add(cells[cell]);
+                    remove(cells[cell]);
+                }
+            }
+        }
+        return blasts;
+    }
+
+    // To call once the board changed, after the blasts have been applied or the map shrunk;
+    // bombs a shrink buried under metal are dropped and never go off
+    public void refresh(GameMap grid) {
+        Arrays.fill(danger, SAFE);
+        for (Bomb bomb : new ArrayList<>(bombs)) {
+            if (grid.get(bomb.x, bomb.y) == 'M') {
+                remove(bomb);
+            }
+        }
+        for (Bomb bomb : bombs) {
+            bomb.tick = bomb.dueTick;
+            bomb.blast = GameRules.blast(grid, bomb.x, bomb.y, bomb.range);
+        }
+
+        List<Bomb> ordered = new ArrayList<>(bombs);
+        ordered.sort(Comparator.comparingLong(b -> b.tick));
+        for (Bomb bomb : ordered) {
+            bomb.tick = Math.min(bomb.tick, danger[bomb.y * width + bomb.x]);
+            propagate(bomb);
+        }
+    }
+
+    public boolean isEmpty() {
+        return bombs.isEmpty();
+    }
+
+    public long dangerAt(int x, int y) {
+        return danger[y * width + x];
+    }
+
+    public List<GameDanger.Cell> dangerCells() {
+        List<GameDanger.Cell> res = new ArrayList<>();
+        for (int i = 0; i < danger.length; i++) {
+            if (danger[i] != SAFE) {
+                res.add(new GameDanger.Cell(i % width, i / width, danger[i]));
+            }
+        }
+        return res;
+    }
+
+    private void propagate(Bomb origin) {
+        Deque<Bomb> pending = new ArrayDeque<>();
+        pending.add(origin);
+        while (!pending.isEmpty()) {
+            Bomb bomb = pending.poll();
+            for (int cell : bomb.blast) {
+                danger[cell] = Math.min(danger[cell], bomb.tick);
+                Bomb reached = cells[cell];
+                if (reached != null && reached.tick > bomb.tick) {
+                    reached.tick = bomb.tick;
+                    pending.add(reached);
+                }
+            }
+        }
+    }
+
+    private void remove(Bomb bomb) {
+        cells[bomb.y * width + bomb.x] = null;
+        bombs.remove(bomb);
+    }
+
+    private static class Bomb {
+        final int x;
+        final int y;
+        final int range;
+        final long dueTick;
+        long tick;
+        int[] blast;
+
+        Bomb(int x, int y, int range, long dueTick) {
+            this.x = x;
+            this.y = y;
+            this.range = range;
+            this.dueTick = dueTick;
+        }
+    }
+}
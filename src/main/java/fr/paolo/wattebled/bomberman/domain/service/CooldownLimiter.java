@@ -0,0 +1,67 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import io.quarkus.scheduler.Scheduled;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cooldowns of every player, kept in memory only: a bucket of one token per player and action,
+ * refilled once the cooldown is over. Endpoints check it before reaching the game, so throttled
+ * requests never take the game lock. Times come from System.nanoTime().
+ */
+@ApplicationScoped
+public class CooldownLimiter {
+    private final Map<Long, AtomicLongArray> buckets = new ConcurrentHashMap<>();
+
+    // Takes the token when it is there, the next one comes after the cooldown
+    public boolean tryAcquire(long playerId, ActionType type, long cooldownNanos) {
+        AtomicLongArray readyAt = bucket(playerId);
+        long now = System.nanoTime();
+        long ready = readyAt.get(type.ordinal());
+        return now - ready >= 0 && readyAt.compareAndSet(type.ordinal(), ready, now + cooldownNanos);
+    }
+
+    // Used by TICK games, whose cooldowns are decided when actions are resolved
+    public void readyAt(long playerId, ActionType type, long nanos) {
+        bucket(playerId).set(type.ordinal(), nanos);
+    }
+
+    public long remainingMillis(long playerId, ActionType type) {
+        AtomicLongArray readyAt = buckets.get(playerId);
+        if (readyAt == null) {
+            return 0;
+        }
+        long remaining = readyAt.get(type.ordinal()) - System.nanoTime();
+        return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining) + 1;
+    }
+
+    @Scheduled(every = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void purge() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(readyAt -> {
+            for (int i = 0; i < readyAt.length(); i++) {
+                if (readyAt.get(i) - now > 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private AtomicLongArray bucket(long playerId) {
+        return buckets.computeIfAbsent(playerId, id -> {
+            // Every token is there for a new player
+            AtomicLongArray readyAt = new AtomicLongArray(ActionType.values().length);
+            long now = System.nanoTime();
+            for (int i = 0; i < readyAt.length(); i++) {
+                readyAt.set(i, now);
+            }
+            return readyAt;
+        });
+    }
+}
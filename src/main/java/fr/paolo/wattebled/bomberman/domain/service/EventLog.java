@@ -0,0 +1,105 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameEventModel;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.utils.GameEventType;
+import io.quarkus.scheduler.Scheduled;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Append-only log of every accepted action, numbered by the game version it produced and
+ * stamped with the tick of the game, counted from its start. Events are buffered and inserted in JDBC batches, so
+ * recording one never costs a database round trip on the action path.
+ */
+@ApplicationScoped
+public class EventLog {
+    private static final Logger LOGGER = Logger.getLogger(EventLog.class);
+    private static final int FLUSH_BATCH_SIZE = 512;
+
+    @Inject
+    GamePersister persister;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    private final ConcurrentLinkedDeque<GameEventModel> pending = new ConcurrentLinkedDeque<>();
+
+    // Called under the game lock, right after the action bumped the game version
+    public void append(GameModel game, GameEventType type, Long playerId, int x, int y, int value, String name) {
+        pending.add(event(game, type, playerId, x, y, value, name));
+    }
+
+    public void append(GameModel game, GameEventType type) {
+        append(game, type, null, 0, 0, 0, null);
+    }
+
+    // Same as append, but dropped if the current transaction rolls back. The events of a
+    // transaction are added together on commit, in the order of the calls, since the
+    // synchronizations of a transaction are not run in the order they were registered
+    public void appendOnCommit(GameModel game, GameEventType type, Long playerId, String name) {
+        @SuppressWarnings("unchecked")
+        List<GameEventModel> committed = (List<GameEventModel>) transactions.getResource(EventLog.class);
+        if (committed == null) {
+            List<GameEventModel> events = new ArrayList<>();
+            transactions.putResource(EventLog.class, events);
+            transactions.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        pending.addAll(events);
+                    }
+                }
+            });
+            committed = events;
+        }
+        committed.add(event(game, type, playerId, 0, 0, 0, name));
+    }
+
+    @Scheduled(every = "${JWS_FLUSH_INTERVAL:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        while (!pending.isEmpty()) {
+            List<GameEventModel> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+            GameEventModel event;
+            while (batch.size() < FLUSH_BATCH_SIZE && (event = pending.poll()) != null) {
+                batch.add(event);
+            }
+
+            try {
+                persister.saveEvents(batch);
+            } catch (RuntimeException e) {
+                LOGGER.errorf(e, "Could not persist %d game events", batch.size());
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    pending.addFirst(batch.get(i).withId(null));
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private GameEventModel event(GameModel game, GameEventType type, Long playerId, int x, int y, int value, String name) {
+        return new GameEventModel(null, game.id, game.version, engine.tick(game), type, playerId,
+                (short) x, (short) y, (short) value, name);
+    }
+}
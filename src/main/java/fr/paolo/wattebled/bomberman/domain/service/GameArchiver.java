@@ -0,0 +1,61 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Moves the games finished for more than JWS_ARCHIVE_AFTER out of the game, player and
+ * game_event tables into game_archive. Each batch runs in its own short transaction and only
+ * touches games the engine no longer holds, so live games are never blocked.
+ */
+@ApplicationScoped
+public class GameArchiver {
+    private static final Logger LOGGER = Logger.getLogger(GameArchiver.class);
+
+    @ConfigProperty(name = "JWS_ARCHIVE_AFTER", defaultValue = "24h")
+    Duration archiveAfter;
+
+    @ConfigProperty(name = "JWS_ARCHIVE_BATCH", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "JWS_ARCHIVE_PAUSE", defaultValue = "PT0.2S")
+    Duration pause;
+
+    @Inject
+    GamePersister persister;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Scheduled(every = "${JWS_ARCHIVE_INTERVAL:10m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void archive() throws InterruptedException {
+        LocalDateTime before = LocalDateTime.now().minus(archiveAfter);
+        long after = 0;
+        int total = 0;
+        while (true) {
+            GamePersister.ArchiveBatch batch = persister.archiveFinished(before, after, batchSize, id -> engine.find(id) == null);
+            total += batch.archived;
+            if (batch.lastId == null) {
+                break;
+            }
+
+            after = batch.lastId;
+            Thread.sleep(pause.toMillis());
+        }
+
+        if (total > 0) {
+            registry.counter("jws.archive.games").increment(total);
+            LOGGER.infof("Archived %d games finished before %s", total, before);
+        }
+    }
+}
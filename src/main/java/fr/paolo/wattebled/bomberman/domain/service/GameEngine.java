@@ -0,0 +1,289 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.converter.ModelCopier;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameChangedEvent;
+import fr.paolo.wattebled.bomberman.domain.entity.GameDelta;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.scheduler.Scheduled;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Holds running games in memory as the source of truth. Mutated games are marked dirty and
+ * written back to the database in batches by {@link #flush()}; finished games are evicted
+ * once their final state has been persisted.
+ */
+@ApplicationScoped
+public class GameEngine {
+    private static final Logger LOGGER = Logger.getLogger(GameEngine.class);
+    private static final int FLUSH_BATCH_SIZE = 64;
+    private static final int HISTORY_SIZE = 32;
+
+    @Inject
+    GamePersister persister;
+
+    @Inject
+    Event<GameChangedEvent> changes;
+
+    @Inject
+    GameLocks locks;
+
+    @Inject
+    TickScheduler scheduler;
+
+    @Inject
+    GameOwnership ownership;
+
+    @Inject
+    GameService service;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<Long, GameModel> games = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Deque<GameModel>> history = new ConcurrentHashMap<>();
+    private final Map<Long, BombField> bombs = new ConcurrentHashMap<>();
+    private final Map<Long, PathFinder> paths = new ConcurrentHashMap<>();
+    private final Map<Long, ActionQueue> actions = new ConcurrentHashMap<>();
+    // Scheduler tick at which each game would have started on this node
+    private final Map<Long, Long> tickBases = new ConcurrentHashMap<>();
+    private Timer decodeTimer;
+    private Timer encodeTimer;
+
+    @PostConstruct
+    void init() {
+        decodeTimer = MapParsing.decodeTimer(registry);
+        encodeTimer = MapParsing.encodeTimer(registry);
+    }
+
+    public GameModel get(long gameId) {
+        GameModel game = games.get(gameId);
+        if (game != null) {
+            return game;
+        }
+
+        // Running but not in memory, after a restart or a takeover: its timers are armed again
+        GameModel loaded = persister.loadRunning(gameId);
+        return loaded == null ? null : games.computeIfAbsent(gameId, id -> {
+            Lock lock = locks.of(id);
+            lock.lock();
+            try {
+                record(loaded);
+                tickBases.put(id, scheduler.currentTick() - loaded.tick);
+                service.resumeGame(loaded);
+            } finally {
+                lock.unlock();
+            }
+            return loaded;
+        });
+    }
+
+    public GameModel find(long gameId) {
+        return games.get(gameId);
+    }
+
+    // Returns false when the game was already in memory
+    public boolean track(GameModel gameModel) {
+        boolean[] added = {false};
+        games.computeIfAbsent(gameModel.id, id -> {
+            GameModel game = copy(gameModel);
+            record(game);
+            tickBases.put(id, scheduler.currentTick() - game.tick);
+            added[0] = true;
+            return game;
+        });
+        return added[0];
+    }
+
+    public BombField bombs(GameModel game) {
+        return bombs.computeIfAbsent(game.id, id -> new BombField(game.grid.getWidth(), game.grid.getHeight()));
+    }
+
+    public ActionQueue actions(GameModel game) {
+        return actions.computeIfAbsent(game.id, id -> new ActionQueue());
+    }
+
+    public PathFinder paths(GameModel game) {
+        return paths.computeIfAbsent(game.id, id -> new PathFinder(game.grid.getWidth(), game.grid.getHeight()));
+    }
+
+    // Drops a game without flushing it, once another node owns it and its state
+    public void evict(long gameId) {
+        games.remove(gameId);
+        dirty.remove(gameId);
+        history.remove(gameId);
+        bombs.remove(gameId);
+        paths.remove(gameId);
+        actions.remove(gameId);
+        tickBases.remove(gameId);
+    }
+
+    public int liveGames() {
+        return games.size();
+    }
+
+    // Ticks since the game started, kept across restarts and nodes since it is saved with the game
+    public long tick(GameModel game) {
+        Long base = tickBases.get(game.id);
+        return base == null ? game.tick : scheduler.currentTick() - base;
+    }
+
+    public void markDirty(GameModel game) {
+        if (game.state == GameState.FINISHED && game.endTime == null) {
+            game.endTime = LocalDateTime.now();
+        }
+        game.version++;
+        game.tick = tick(game);
+        record(game);
+        dirty.add(game.id);
+        changes.fire(new GameChangedEvent(game.id));
+    }
+
+    public GameModel snapshot(GameModel game) {
+        Lock lock = locks.of(game.id);
+        lock.lock();
+        try {
+            return copy(game);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Read under the game lock, so it is never older than the last change
+    public long version(GameModel game) {
+        Lock lock = locks.of(game.id);
+        lock.lock();
+        try {
+            return game.version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public GameDelta delta(long gameId, long since) {
+        GameModel game = games.get(gameId);
+        if (game == null) {
+            return null;
+        }
+
+        Lock lock = locks.of(game.id);
+        lock.lock();
+        try {
+            GameModel base = history.getOrDefault(gameId, new ArrayDeque<>()).stream()
+                    .filter(h -> h.version == since)
+                    .findFirst()
+                    .orElse(null);
+            if (base == null) {
+                return null;
+            }
+
+            List<GameDelta.Cell> cells = new ArrayList<>();
+            GameMap before = base.grid;
+            GameMap after = game.grid;
+            for (int y = 0; y < after.getHeight(); y++) {
+                for (int x = 0; x < after.getWidth(); x++) {
+                    if (before.get(x, y) != after.get(x, y)) {
+                        cells.add(new GameDelta.Cell(x, y, after.get(x, y)));
+                    }
+                }
+            }
+
+            List<GameDelta.Player> players = new ArrayList<>();
+            for (PlayerModel p : game.players) {
+                PlayerModel b = base.players.stream().filter(o -> o.id.equals(p.id)).findFirst().orElse(null);
+                if (b == null || b.lives != p.lives || b.posX != p.posX || b.posY != p.posY) {
+                    players.add(new GameDelta.Player(
+                            p.id,
+                            b == null || b.lives != p.lives ? p.lives : null,
+                            b == null || b.posX != p.posX ? p.posX : null,
+                            b == null || b.posY != p.posY ? p.posY : null));
+                }
+            }
+
+            return new GameDelta(gameId, since, game.version, game.state, cells, players);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Synchronized so an older snapshot of a game is never written after a newer one
+    @Scheduled(every = "${JWS_FLUSH_INTERVAL:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    synchronized void flush() {
+        List<Long> ids = new ArrayList<>(dirty);
+        for (int i = 0; i < ids.size(); i += FLUSH_BATCH_SIZE) {
+            flushBatch(ids.subList(i, Math.min(ids.size(), i + FLUSH_BATCH_SIZE)));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    // A game read from the database comes with its encoded board only
+    private GameModel copy(GameModel game) {
+        return game.grid == null
+                ? ModelCopier.copyGame(game, List.copyOf(game.map), decodeTimer.record(() -> MapParsing.decodeGrid(game.map)))
+                : ModelCopier.copyGame(game, encodeTimer.record(() -> MapParsing.encodeGrid(game.grid)), game.grid.copy());
+    }
+
+    private void record(GameModel game) {
+        Deque<GameModel> versions = history.computeIfAbsent(game.id, id -> new ArrayDeque<>());
+        versions.addLast(ModelCopier.copyState(game));
+        if (versions.size() > HISTORY_SIZE) {
+            versions.removeFirst();
+        }
+    }
+
+    private void flushBatch(List<Long> ids) {
+        List<GameModel> snapshots = new ArrayList<>();
+        ids.forEach(id -> {
+            dirty.remove(id);
+            GameModel game = games.get(id);
+            if (game != null) {
+                snapshots.add(snapshot(game));
+            }
+        });
+
+        List<Long> saved;
+        try {
+            saved = persister.saveAll(snapshots, ownership.isEnabled() ? ownership.nodeId() : null, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            LOGGER.errorf(e, "Could not persist games %s", ids);
+            dirty.addAll(ids);
+            return;
+        }
+        if (saved.size() < snapshots.size()) {
+            // Lost lease or newer row: another node owns the game now, renew() evicts it
+            LOGGER.warnf("Dropped stale snapshots of games %s",
+                    snapshots.stream().map(GameModel::getId).filter(id -> !saved.contains(id)).toList());
+        }
+
+        snapshots.stream()
+                .filter(s -> s.state == GameState.FINISHED && !dirty.contains(s.id))
+                .forEach(s -> {
+                    games.remove(s.id);
+                    history.remove(s.id);
+                    bombs.remove(s.id);
+                    paths.remove(s.id);
+                    actions.remove(s.id);
+                    tickBases.remove(s.id);
+                });
+    }
+}
@@ -0,0 +1,26 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped fair locks serializing the actions applied to a game. Different games only
+ * contend when they hash to the same stripe.
+ */
+@ApplicationScoped
+public class GameLocks {
+    private static final int STRIPES = 1024;
+
+    private final Lock[] locks = new Lock[STRIPES];
+
+    public GameLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock(true);
+        }
+    }
+
+    public Lock of(long gameId) {
+        return locks[Long.hashCode(gameId * 0x9E3779B97F4A7C15L) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,66 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.repository.GameRepository;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.quarkus.runtime.Startup;
+import io.quarkus.scheduler.Scheduled;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gauges of games and players per GameState. The database counts are refreshed periodically
+ * instead of on every scrape.
+ */
+@Startup
+@ApplicationScoped
+public class GameMetrics {
+    GameRepository gameRepository;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    GameEngine engine;
+
+    private final Map<GameState, AtomicLong> games = new EnumMap<>(GameState.class);
+    private final Map<GameState, AtomicLong> players = new EnumMap<>(GameState.class);
+
+    public GameMetrics() {
+        this.gameRepository = new GameRepository();
+    }
+
+    @PostConstruct
+    void init() {
+        for (GameState state : GameState.values()) {
+            games.put(state, registry.gauge("jws.games", Tags.of("state", state.name()), new AtomicLong()));
+            players.put(state, registry.gauge("jws.players", Tags.of("state", state.name()), new AtomicLong()));
+        }
+        registry.gauge("jws.engine.games", engine, GameEngine::liveGames);
+    }
+
+    @Scheduled(every = "${JWS_METRICS_REFRESH:15s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Transactional
+    void refresh() {
+        games.values().forEach(c -> c.set(0));
+        players.values().forEach(c -> c.set(0));
+
+        List<Object[]> gameCounts = gameRepository.getEntityManager()
+                .createQuery("select g.state, count(g) from GameModel g group by g.state", Object[].class)
+                .getResultList();
+        gameCounts.forEach(r -> games.get((GameState) r[0]).set((Long) r[1]));
+
+        List<Object[]> playerCounts = gameRepository.getEntityManager()
+                .createQuery("select g.state, count(p) from PlayerModel p join p.game g group by g.state", Object[].class)
+                .getResultList();
+        playerCounts.forEach(r -> players.get((GameState) r[0]).set((Long) r[1]));
+    }
+}
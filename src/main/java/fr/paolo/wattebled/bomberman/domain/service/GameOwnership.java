@@ -0,0 +1,150 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameOwnerModel;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import io.quarkus.scheduler.Scheduled;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shards games across nodes: every game is owned by the single node holding its lease in the
+ * game_owner table, and only that node runs its engine state and timers. Leases are renewed
+ * while the node uses the game; when a node dies they expire and the next node asked for the
+ * game takes it over from its last flushed state. Disabled unless JWS_SHARDING is true.
+ */
+@ApplicationScoped
+public class GameOwnership {
+    private static final Logger LOGGER = Logger.getLogger(GameOwnership.class);
+
+    @ConfigProperty(name = "JWS_SHARDING", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "JWS_NODE_ID")
+    Optional<String> configuredNodeId;
+
+    @ConfigProperty(name = "JWS_NODE_URL", defaultValue = "http://localhost:8080")
+    String nodeUrl;
+
+    @ConfigProperty(name = "JWS_LEASE_DURATION", defaultValue = "10s")
+    Duration leaseDuration;
+
+    @Inject
+    GamePersister persister;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    TickScheduler scheduler;
+
+
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+    private volatile String nodeId;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String nodeId() {
+        if (nodeId == null) {
+            nodeId = configuredNodeId.orElseGet(() -> UUID.randomUUID().toString());
+        }
+        return nodeId;
+    }
+
+    // Base URL of the node owning the game, null when it is this one
+    public String ownerUrl(long gameId) {
+        if (!enabled) {
+            return null;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Lease lease = leases.get(gameId);
+        if (lease != null && lease.owner.leaseUntil.isAfter(now)) {
+            lease.lastAccess = now;
+            return lease.isLocal() ? null : lease.owner.nodeUrl;
+        }
+        return claim(gameId, now);
+    }
+
+    // Serialized so a game taken over is resumed only once
+    private synchronized String claim(long gameId, LocalDateTime now) {
+        Lease lease = leases.get(gameId);
+        if (lease != null && lease.owner.leaseUntil.isAfter(now)) {
+            return lease.isLocal() ? null : lease.owner.nodeUrl;
+        }
+
+        GameOwnerModel owner = persister.claimGame(gameId, nodeId(), nodeUrl, now, now.plus(leaseDuration));
+        Lease claimed = new Lease(owner, now);
+        boolean takenOver = claimed.isLocal() && (lease == null || !lease.isLocal());
+        leases.put(gameId, claimed);
+        if (takenOver) {
+            LOGGER.infof("Node %s now owns game %d", nodeId(), gameId);
+            // Loading it into the engine arms its timers again
+            engine.get(gameId);
+        }
+        return claimed.isLocal() ? null : owner.nodeUrl;
+    }
+
+    @Scheduled(every = "${JWS_LEASE_RENEW:3s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void renew() {
+        if (!enabled) {
+            return;
+        }
+
+        // Leases of games neither running here nor asked for lately are left to expire
+        LocalDateTime now = LocalDateTime.now();
+        leases.entrySet().removeIf(e -> !e.getValue().isLocal()
+                || (engine.find(e.getKey()) == null && e.getValue().lastAccess.plus(leaseDuration).isBefore(now)));
+        if (leases.isEmpty()) {
+            return;
+        }
+
+        Set<Long> held = new HashSet<>(leases.keySet());
+        LocalDateTime until = now.plus(leaseDuration);
+        Set<Long> renewed = new HashSet<>(persister.renewLeases(nodeId(), held, until));
+        for (Long gameId : held) {
+            if (renewed.contains(gameId)) {
+                leases.computeIfPresent(gameId, (id, lease) -> new Lease(lease.owner.withLeaseUntil(until), lease.lastAccess));
+            } else {
+                // Another node took the game over, its state here is stale
+                LOGGER.warnf("Node %s lost game %d", nodeId(), gameId);
+                leases.remove(gameId);
+                scheduler.cancelGame(gameId);
+                engine.evict(gameId);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled || leases.isEmpty()) {
+            return;
+        }
+
+        // Flush first so the next owner starts from the latest state
+        engine.flush();
+        persister.releaseLeases(nodeId(), new ArrayList<>(leases.keySet()));
+    }
+
+    private class Lease {
+        final GameOwnerModel owner;
+        volatile LocalDateTime lastAccess;
+
+        Lease(GameOwnerModel owner, LocalDateTime lastAccess) {
+            this.owner = owner;
+            this.lastAccess = lastAccess;
+        }
+
+        boolean isLocal() {
+            return owner.nodeId.equals(nodeId());
+        }
+    }
+}
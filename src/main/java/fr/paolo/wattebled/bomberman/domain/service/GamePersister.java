@@ -0,0 +1,189 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.converter.ArchiveConverter;
+import fr.paolo.wattebled.bomberman.converter.ModelCopier;
+import fr.paolo.wattebled.bomberman.data.model.GameEventModel;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.GameOwnerModel;
+import fr.paolo.wattebled.bomberman.data.repository.GameArchiveRepository;
+import fr.paolo.wattebled.bomberman.data.repository.GameEventRepository;
+import fr.paolo.wattebled.bomberman.data.repository.GameOwnerRepository;
+import fr.paolo.wattebled.bomberman.data.repository.GameRepository;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.microprofile.opentracing.Traced;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.LockModeType;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+
+@ApplicationScoped
+@Traced
+public class GamePersister {
+    GameRepository gameRepository;
+    GameArchiveRepository archiveRepository;
+    GameEventRepository eventRepository;
+    GameOwnerRepository ownerRepository;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Timer decodeTimer;
+
+    public GamePersister() {
+        this.gameRepository = new GameRepository();
+        this.archiveRepository = new GameArchiveRepository();
+        this.eventRepository = new GameEventRepository();
+        this.ownerRepository = new GameOwnerRepository();
+    }
+
+    @PostConstruct
+    void init() {
+        decodeTimer = MapParsing.decodeTimer(registry);
+    }
+
+    @Timed(value = "jws.db", extraTags = {"operation", "loadRunning"}, histogram = true)
+    @Transactional
+    public GameModel loadRunning(long gameId) {
+        GameModel tmp = gameRepository.findById(gameId);
+        if (tmp == null || tmp.state != GameState.RUNNING) {
+            return null;
+        }
+        return ModelCopier.copyGame(tmp, List.copyOf(tmp.map), decodeTimer.record(() -> MapParsing.decodeGrid(tmp.map)));
+    }
+
+    // Only writes the snapshots newer than their row and, when nodeId is set, those of the games
+    // this node holds an unexpired lease on. The leases stay locked until commit, so no node
+    // takes them over in between. Returns the ids written, the other snapshots are stale
+    @Timed(value = "jws.db", extraTags = {"operation", "saveAll"}, histogram = true)
+    @Transactional
+    public List<Long> saveAll(List<GameModel> snapshots, String nodeId, LocalDateTime now) {
+        // The in queries fail on an empty list
+        if (snapshots.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = snapshots.stream().map(GameModel::getId).toList();
+        Set<Long> owned = nodeId == null ? null : ownerRepository
+                .find("nodeId = ?1 and gameId in ?2 and leaseUntil > ?3", nodeId, ids, now)
+                .withLock(LockModeType.PESSIMISTIC_READ)
+                .stream()
+                .map(GameOwnerModel::getGameId)
+                .collect(Collectors.toSet());
+        Map<Long, GameModel> models = gameRepository.list("id in ?1", ids).stream()
+                .collect(Collectors.toMap(GameModel::getId, Function.identity()));
+
+        List<Long> saved = new ArrayList<>();
+        snapshots.forEach(s -> {
+            GameModel model = models.get(s.id);
+            if (model != null && s.version > model.version && (owned == null || owned.contains(s.id))) {
+                ModelCopier.applyGame(s, model);
+                saved.add(s.id);
+            }
+        });
+        return saved;
+    }
+
+    @Timed(value = "jws.db", extraTags = {"operation", "saveEvents"}, histogram = true)
+    @Transactional
+    public void saveEvents(List<GameEventModel> events) {
+        eventRepository.persist(events);
+    }
+
+    @Timed(value = "jws.db", extraTags = {"operation", "loadEvents"}, histogram = true)
+    @Transactional
+    public List<GameEventModel> loadEvents(long gameId, long untilTick) {
+        return eventRepository.list("gameId = ?1 and tick <= ?2 order by version, id", gameId, untilTick);
+    }
+
+    // Takes the lease when there is none, when it expired or when it is already ours, returns the current owner
+    @Timed(value = "jws.db", extraTags = {"operation", "claimGame"}, histogram = true)
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public GameOwnerModel claimGame(long gameId, String nodeId, String nodeUrl, LocalDateTime now, LocalDateTime until) {
+        GameOwnerModel owner = ownerRepository.findById(gameId, LockModeType.PESSIMISTIC_WRITE);
+        if (owner == null) {
+            owner = new GameOwnerModel(gameId, nodeId, nodeUrl, until);
+            ownerRepository.persist(owner);
+        } else if (owner.nodeId.equals(nodeId) || owner.leaseUntil.isBefore(now)) {
+            owner.nodeId = nodeId;
+            owner.nodeUrl = nodeUrl;
+            owner.leaseUntil = until;
+        }
+        return new GameOwnerModel(owner.gameId, owner.nodeId, owner.nodeUrl, owner.leaseUntil);
+    }
+
+    // Returns the ids whose lease is still held by this node
+    @Timed(value = "jws.db", extraTags = {"operation", "renewLeases"}, histogram = true)
+    @Transactional
+    public List<Long> renewLeases(String nodeId, Collection<Long> gameIds, LocalDateTime until) {
+        if (gameIds.isEmpty()) {
+            return List.of();
+        }
+        ownerRepository.update("leaseUntil = ?1 where nodeId = ?2 and gameId in ?3", until, nodeId, gameIds);
+        return ownerRepository.list("nodeId = ?1 and gameId in ?2", nodeId, gameIds).stream()
+                .map(GameOwnerModel::getGameId)
+                .toList();
+    }
+
+    @Timed(value = "jws.db", extraTags = {"operation", "releaseLeases"}, histogram = true)
+    @Transactional
+    public void releaseLeases(String nodeId, Collection<Long> gameIds) {
+        if (gameIds.isEmpty()) {
+            return;
+        }
+        ownerRepository.delete("nodeId = ?1 and gameId in ?2", nodeId, gameIds);
+    }
+
+    @Timed(value = "jws.db", extraTags = {"operation", "archiveFinished"}, histogram = true)
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public ArchiveBatch archiveFinished(LocalDateTime before, long after, int limit, LongPredicate archivable) {
+        List<GameModel> finished = gameRepository.find(
+                        "state = ?1 and coalesce(endTime, startTime) < ?2 and id > ?3 order by id",
+                        GameState.FINISHED, before, after)
+                .page(0, limit)
+                .list();
+
+        List<Long> archived = new ArrayList<>();
+        for (GameModel game : finished) {
+            if (!archivable.test(game.id)) {
+                continue;
+            }
+
+            archiveRepository.persist(ArchiveConverter.archiveGame(game));
+            gameRepository.delete(game);
+            archived.add(game.id);
+        }
+        // The archive keeps the final state only, the events go with the game
+        if (!archived.isEmpty()) {
+            eventRepository.delete("gameId in ?1", archived);
+        }
+
+        Long lastId = finished.size() < limit ? null : finished.get(finished.size() - 1).id;
+        return new ArchiveBatch(archived.size(), lastId);
+    }
+
+    public static class ArchiveBatch {
+        public final int archived;
+        // Id to resume from, null when there is nothing left
+        public final Long lastId;
+
+        ArchiveBatch(int archived, Long lastId) {
+            this.archived = archived;
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameEventModel;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+import fr.paolo.wattebled.bomberman.domain.entity.MapTemplate;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds a game from its event log by applying the same rules as the live engine, from
+ * the map template it was created on. Replaying up to a tick gives the board as it was
+ * at the end of that tick.
+ */
+@ApplicationScoped
+public class GameReplayer {
+    @Inject
+    GamePersister persister;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    MeterRegistry registry;
+
+    public GameModel replay(long gameId, long untilTick) {
+        List<GameEventModel> events = persister.loadEvents(gameId, untilTick);
+        if (events.isEmpty()) {
+            return null;
+        }
+
+        GameModel game = null;
+        BombField bombs = null;
+        for (GameEventModel event : events) {
+            switch (event.type) {
+                case CREATE -> {
+                    MapTemplate template = maps.get(event.name);
+                    game = new GameModel()
+                            .withId(gameId)
+                            .withState(GameState.STARTING)
+                            .withMapName(template.name)
+                            .withPlayers(new ArrayList<>())
+                            .withGrid(MapParsing.decodeTimer(registry).record(() -> MapParsing.decodeGrid(template.rows)));
+                    bombs = new BombField(template.width, template.height);
+                }
+                case JOIN -> {
+                    int[] spawn = GameRules.spawn(game.players.size(), game.grid.getWidth(), game.grid.getHeight());
+                    game.players.add(new PlayerModel(event.playerId, 3, event.name, spawn[0], spawn[1], game));
+                    game.playerCount++;
+                }
+                case START -> game.state = game.players.size() <= 1 ? GameState.FINISHED : GameState.RUNNING;
+                case MOVE -> {
+                    PlayerModel player = player(game, event.playerId);
+                    player.posX = event.posX;
+                    player.posY = event.posY;
+                }
+                case BOMB -> {
+                    game.grid.set(event.posX, event.posY, 'B');
+                    bombs.plant(game.grid, event.posX, event.posY, event.value, event.tick);
+                }
+                case EXPLOSION -> {
+                    GameModel exploded = game;
+                    bombs.detonate(game.grid, event.posX, event.posY).forEach(blast -> GameRules.explode(exploded, blast));
+                    bombs.refresh(game.grid);
+                }
+                case SHRINK -> {
+                    GameRules.shrink(game);
+                    bombs.refresh(game.grid);
+                }
+            }
+            game.version = event.version;
+        }
+
+        if (game != null) {
+            GameModel replayed = game;
+            game.map = MapParsing.encodeTimer(registry).record(() -> MapParsing.encodeGrid(replayed.grid));
+        }
+        return game;
+    }
+
+    private static PlayerModel player(GameModel game, Long playerId) {
+        return game.players.stream()
+                .filter(p -> p.id.equals(playerId))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Player " + playerId + " never joined game " + game.id));
+    }
+}
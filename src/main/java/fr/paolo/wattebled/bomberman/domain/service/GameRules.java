@@ -0,0 +1,126 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+
+import java.util.Arrays;
+
+public class GameRules {
+    public static boolean isMoveLegal(GameMap grid, int prevPosX, int prevPosY, int newPosX, int newPosY) {
+        if (!grid.inBounds(newPosX, newPosY) || grid.get(newPosX, newPosY) != 'G') {
+            return false;
+        }
+
+        int diffX = prevPosX - newPosX;
+        int diffY = prevPosY - newPosY;
+        if (diffX > 1 || diffY > 1) {
+            return false;
+        }
+
+        return ((diffX != 0) ^ (diffY != 0));
+    }
+
+    private static final int[][] DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+    // Players spawn in the corners, clockwise from the top left one
+    public static int[] spawn(int index, int width, int height) {
+        switch (index) {
+            case 0:
+                return new int[]{1, 1};
+            case 1:
+                return new int[]{width - 2, 1};
+            case 2:
+                return new int[]{width - 2, height - 2};
+            default:
+                return new int[]{1, height - 2};
+        }
+    }
+
+    // Cells reached by a blast, packed as y * width + x: the centre, then up to range cells
+    // in every direction, stopped before metal and at the first wall
+    public static int[] blast(GameMap grid, int x, int y, int range) {
+        int[] cells = new int[1 + 4 * range];
+        int count = 0;
+        cells[count++] = y * grid.getWidth() + x;
+        for (int[] direction : DIRECTIONS) {
+            for (int i = 1; i <= range; i++) {
+                int cx = x + direction[0] * i;
+                int cy = y + direction[1] * i;
+                if (!grid.inBounds(cx, cy) || grid.get(cx, cy) == 'M') {
+                    break;
+                }
+                cells[count++] = cy * grid.getWidth() + cx;
+                if (grid.get(cx, cy) == 'W') {
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    public static void explode(GameModel tmp, int[] blast) {
+        GameMap grid = tmp.grid;
+        int width = grid.getWidth();
+        for (int cell : blast) {
+            int x = cell % width;
+            int y = cell / width;
+            tmp.players.forEach(p -> {
+                if (p.posX == x && p.posY == y)
+                    p.lives--;
+            });
+            destroyWall(grid, x, y);
+        }
+
+        // Unless a shrink already buried the bomb under metal
+        int centre = blast[0];
+        if (grid.get(centre % width, centre / width) == 'B') {
+            grid.set(centre % width, centre / width, 'G');
+        }
+
+        long playersAlive = tmp.players.stream().filter(p -> p.lives > 0).count();
+        if (playersAlive <= 1) {
+            tmp.state = GameState.FINISHED;
+        }
+    }
+
+    public static void shrink(GameModel tmpGame) {
+        GameMap grid = tmpGame.grid;
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int offset = tmpGame.shrinkLevel + 1;
+
+        // Nothing left to shrink once the ring reaches the center of the map
+        if (offset <= (Math.min(width, height) - 1) / 2) {
+            // first and last line
+            for (int i = offset; i < width - offset; i++) {
+                grid.set(i, offset, 'M');
+                grid.set(i, height - offset - 1, 'M');
+            }
+
+            // first and last column
+            for (int i = offset; i < height - offset; i++) {
+                grid.set(offset, i, 'M');
+                grid.set(width - offset - 1, i, 'M');
+            }
+
+            tmpGame.shrinkLevel++;
+        }
+
+        // Kill players that are outside the map or on a M
+        tmpGame.players.forEach(p -> {
+            if (!grid.inBounds(p.posX, p.posY) || grid.get(p.posX, p.posY) == 'M') {
+                p.lives = 0;
+            }
+        });
+        if (tmpGame.players.stream().filter(p -> p.lives > 0).count() <= 1) {
+            tmpGame.state = GameState.FINISHED;
+        }
+    }
+
+    private static void destroyWall(GameMap grid, int x, int y) {
+        if (grid.inBounds(x, y) && grid.get(x, y) == 'W') {
+            grid.set(x, y, 'G');
+        }
+    }
+}
@@ -5,23 +5,67 @@ import fr.paolo.wattebled.bomberman.data.model.GameModel;
 import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
 import fr.paolo.wattebled.bomberman.data.repository.GameRepository;
 import fr.paolo.wattebled.bomberman.data.repository.PlayerRepository;
+import fr.paolo.wattebled.bomberman.domain.entity.GameChangedEvent;
+import fr.paolo.wattebled.bomberman.domain.entity.GameDanger;
+import fr.paolo.wattebled.bomberman.domain.entity.GameDelta;
 import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.GamePath;
+import fr.paolo.wattebled.bomberman.domain.entity.GameSummaryEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.MapTemplate;
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import fr.paolo.wattebled.bomberman.utils.GameEventType;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
 import fr.paolo.wattebled.bomberman.utils.GameState;
-import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.annotation.Timed;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.opentracing.Traced;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.LockModeType;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
 import javax.ws.rs.BadRequestException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 @ApplicationScoped
+@Traced
 public class GameService {
     GameRepository gameRepository;
     PlayerRepository playerRepository;
 
-    private int offset = 1;
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    Event<GameChangedEvent> changes;
+
+    @Inject
+    GameLocks locks;
+
+    @Inject
+    TickScheduler scheduler;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    EventLog events;
+
+    @Inject
+    GameReplayer replayer;
+
+    @Inject
+    CooldownLimiter limiter;
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
 
     @ConfigProperty(name = "JWS_DELAY_MOVEMENT")
     int delayMovement;
@@ -32,57 +76,114 @@ public class GameService {
     @ConfigProperty(name = "JWS_DELAY_BOMB")
     int delayBomb;
 
-    @ConfigProperty(name = "JWS_MAP_PATH")
-    String mapPath;
+    @ConfigProperty(name = "JWS_BOMB_RANGE", defaultValue = "1")
+    int bombRange;
+
+    @ConfigProperty(name = "JWS_DELAY_FREE")
+    int delayFree;
+
+    @ConfigProperty(name = "JWS_DELAY_SHRINK")
+    int delayShrink;
+
 
     public GameService() {
         this.gameRepository = new GameRepository();
         this.playerRepository = new PlayerRepository();
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getGames"}, histogram = true)
     @Transactional
-    public List<GameEntity> getAllGames() {
-        List<GameModel> tmp = gameRepository.findAll().stream().toList();
-
-        return tmp.stream()
-                .map(FromModelToEntityConvert::convertGame)
+    public List<GameSummaryEntity> getGames(GameState state, Long after, int limit) {
+        return gameRepository.listSummaries(state, after == null ? 0 : after, limit).stream()
+                .map(FromModelToEntityConvert::convertSummary)
                 .toList();
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "createGame"}, histogram = true)
     @Transactional
-    public GameEntity createGame(String playerName) {
+    public GameEntity createGame(String playerName, String mapName, GameMode mode) {
+        if (!maps.contains(mapName)) {
+            throw new BadRequestException(); // 400
+        }
+
+        // The map rows are only written once the game starts, until then the template is shared
+        MapTemplate template = maps.get(mapName);
         GameModel gameModel = new GameModel()
                 .withPlayers(new ArrayList<>())
                 .withStartTime(LocalDateTime.now())
                 .withState(GameState.STARTING)
-                .withMap(MapParsing.getMap(mapPath));
+                .withPlayerCount(1)
+                .withMapName(template.name)
+                .withMode(mode == null ? GameMode.REALTIME : mode)
+                .withMap(new ArrayList<>());
 
         PlayerModel playerModel = new PlayerModel()
                 .withName(playerName)
                 .withLives(3)
                 .withPosX(1)
                 .withPosY(1)
-                .withGame(gameModel)
-                .withLastBomb(System.currentTimeMillis() - (long) delayBomb * tickDuration)
-                .withLastMovement(System.currentTimeMillis() - (long) delayMovement * tickDuration);
+                .withGame(gameModel);
 
         gameModel.players.add(playerModel);
 
         gameRepository.persist(gameModel);
         playerRepository.persist(playerModel);
+        events.appendOnCommit(gameModel, GameEventType.CREATE, null, template.name);
+        events.appendOnCommit(gameModel, GameEventType.JOIN, playerModel.id, playerName);
 
-        return FromModelToEntityConvert.convertGame(gameModel);
+        return toEntity(gameModel);
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getGameById"}, histogram = true)
     @Transactional
     public GameEntity getGameById(Integer id) {
+        GameModel live = engine.find(id);
+        if (live != null) {
+            return FromModelToEntityConvert.convertGame(engine.snapshot(live));
+        }
+
         GameModel tmp = gameRepository.findById((long) id);
-        return FromModelToEntityConvert.convertGame(tmp);
+        return toEntity(tmp);
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "isLive"}, histogram = true)
+    public boolean isLive(int id) {
+        return engine.find(id) != null;
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getLiveVersion"}, histogram = true)
+    // Version of the game running on this node, null when it is not
+    public Long getLiveVersion(int id) {
+        GameModel live = engine.find(id);
+        return live == null ? null : engine.version(live);
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getLiveGame"}, histogram = true)
+    // Never reaches the database, null when the game is not running on this node
+    public GameEntity getLiveGame(int id) {
+        GameModel live = engine.find(id);
+        return live == null ? null : FromModelToEntityConvert.convertGame(engine.snapshot(live));
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "replayGame"}, histogram = true)
+    public GameEntity replayGame(Integer id, long tick) {
+        GameModel replayed = replayer.replay(id, tick);
+        if (replayed == null) {
+            throw new NoSuchElementException(); // 404
+        }
+        return FromModelToEntityConvert.convertGame(replayed);
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getGameDelta"}, histogram = true)
+    public GameDelta getGameDelta(Integer id, long since) {
+        return engine.delta(id, since);
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "joinGame"}, histogram = true)
     @Transactional
     public GameEntity joinGame(int id, String newPlayerName) {
-        GameModel tmp = gameRepository.findById((long) id);
+        // The row lock serializes the joins until commit, the game lock is left to the live games
+        GameModel tmp = gameRepository.findById((long) id, LockModeType.PESSIMISTIC_WRITE);
         if (tmp == null) {
             throw new NoSuchElementException(); // 404
         }
@@ -93,195 +194,480 @@ public class GameService {
 
         PlayerModel newPlayer = createNewPlayer(tmp, newPlayerName);
         tmp.players.add(newPlayer);
+        tmp.playerCount++;
+        tmp.version++;
         playerRepository.persist(newPlayer);
+        events.appendOnCommit(tmp, GameEventType.JOIN, newPlayer.id, newPlayerName);
+        changes.fire(new GameChangedEvent(tmp.id));
 
         return getGameById(id);
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "startGame"}, histogram = true)
     @Transactional
     public GameEntity startGame(Integer id) {
-        GameModel tmp = gameRepository.findById((long) id);
+        GameModel tmp = gameRepository.findById((long) id, LockModeType.PESSIMISTIC_WRITE);
         if (tmp == null || tmp.state == GameState.FINISHED) {
             throw new NoSuchElementException(); // 404
         }
 
-        tmp.state = (tmp.players.size() <= 1) ? GameState.FINISHED : GameState.RUNNING;
-        tmp.startTime = LocalDateTime.now();
+        // Already started, the engine holds it and its row must not get ahead of it
+        if (tmp.state == GameState.RUNNING) {
+            GameModel live = engine.get(id);
+            if (live != null) {
+                return FromModelToEntityConvert.convertGame(engine.snapshot(live));
+            }
+        }
 
-        return getGameById(id);
+        start(tmp);
+        changes.fire(new GameChangedEvent(tmp.id));
+
+        return toEntity(tmp);
     }
 
+    /**
+     * Creates a game already holding all of these players and starts it, in one transaction,
+     * so matched players never go through the lobby. The players are in the order of the names.
+     */
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "createMatch"}, histogram = true)
     @Transactional
-    public GameEntity plantBomb(Integer gameId, Integer playerId, Integer x, Integer y) {
-        if (gameId == null || playerId == null) {
-            throw new BadRequestException(); // 404
+    public GameEntity createMatch(List<String> playerNames, String mapName, GameMode mode) {
+        if (!maps.contains(mapName) || playerNames.size() < 2 || playerNames.size() > 4) {
+            throw new BadRequestException(); // 400
         }
 
-        GameModel tmpGame = gameRepository.findById((long) gameId);
-        PlayerModel tmpPlayer = playerRepository.findById((long) playerId);
-        if (tmpGame == null || tmpPlayer == null) {
-            throw new NoSuchElementException(); // 404
+        MapTemplate template = maps.get(mapName);
+        GameModel gameModel = new GameModel()
+                .withPlayers(new ArrayList<>())
+                .withStartTime(LocalDateTime.now())
+                .withState(GameState.STARTING)
+                .withPlayerCount(playerNames.size())
+                .withMapName(template.name)
+                .withMode(mode == null ? GameMode.REALTIME : mode)
+                .withMap(new ArrayList<>());
+        for (String name : playerNames) {
+            gameModel.players.add(createNewPlayer(gameModel, name));
         }
 
-        if (x == null || y == null) {
-            throw new BadRequestException(); // 400
-        }
+        gameRepository.persist(gameModel);
+        gameModel.players.forEach(playerRepository::persist);
+        events.appendOnCommit(gameModel, GameEventType.CREATE, null, template.name);
+        gameModel.players.forEach(p -> events.appendOnCommit(gameModel, GameEventType.JOIN, p.id, p.name));
+        start(gameModel);
 
-        if (tmpGame.state == GameState.FINISHED || tmpGame.state == GameState.STARTING ||
-                tmpPlayer.lives <= 0 || tmpPlayer.posX != x || tmpPlayer.posY != y) {
-            throw new BadRequestException(); // 400
+        return toEntity(gameModel);
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "plantBomb"}, histogram = true)
+    // Returns false when the game resolves actions per tick and the bomb was only queued
+    public boolean plantBomb(Integer gameId, Integer playerId, Integer x, Integer y) {
+        if (gameId == null || playerId == null) {
+            throw new BadRequestException(); // 404
         }
 
-        if (!canPlantBomb(tmpPlayer)) {
-            throw new ArithmeticException(); // 429
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            PlayerModel tmpPlayer = getPlayer(tmpGame, playerId);
+
+            if (x == null || y == null) {
+                throw new BadRequestException(); // 400
+            }
+
+            if (tmpGame.state == GameState.FINISHED || tmpGame.state == GameState.STARTING ||
+                    tmpPlayer.lives <= 0 || tmpPlayer.posX != x || tmpPlayer.posY != y) {
+                throw new BadRequestException(); // 400
+            }
+
+            if (tmpGame.mode == GameMode.TICK) {
+                ActionQueue queue = engine.actions(tmpGame);
+                if (queue.bombCooldown(tmpPlayer.id, scheduler.currentTick() + 1, delayBomb) > 0) {
+                    throw new ArithmeticException(); // 429
+                }
+                queue.queueBomb(tmpPlayer.id, x, y);
+                limiter.readyAt(tmpPlayer.id, ActionType.BOMB, scheduler.tickNanos(scheduler.currentTick() + 1));
+                return false;
+            }
+
+            if (!limiter.tryAcquire(tmpPlayer.id, ActionType.BOMB, cooldownNanos(delayBomb))) {
+                throw new ArithmeticException(); // 429
+            }
+
+            placeBomb(tmpGame, x, y);
+            engine.markDirty(tmpGame);
+            events.append(tmpGame, GameEventType.BOMB, tmpPlayer.id, x, y, bombRange, null);
+            return true;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        tmpPlayer.lastBomb = System.currentTimeMillis();
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "explodeBomb"}, histogram = true)
+    public GameState explodeBomb(int gameId, int x, int y, long dueTick) {
+        GameModel tmp = engine.get(gameId);
+        if (tmp == null) {
+            return GameState.FINISHED;
+        }
 
-        List<String> decodeMap = MapParsing.decodeMap(tmpGame.map);
-        StringBuilder line = new StringBuilder(decodeMap.get(y));
-        line.setCharAt(x, 'B');
-        decodeMap.set(y, line.toString());
-        List<String> encodeMap = MapParsing.encodeMap(decodeMap);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            // Nothing to do when the bomb already went off in a chain
+            BombField field = engine.bombs(tmp);
+            List<int[]> blasts = field.detonate(tmp.grid, x, y, dueTick);
+            if (blasts.isEmpty()) {
+                return tmp.state;
+            }
 
-        tmpGame.map = List.copyOf(encodeMap);
-        return getGameById(gameId);
+            blasts.forEach(blast -> GameRules.explode(tmp, blast));
+            field.refresh(tmp.grid);
+            engine.markDirty(tmp);
+            events.append(tmp, GameEventType.EXPLOSION, null, x, y, 0, null);
+            return tmp.state;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    @Transactional
-    public void explodeBomb(int gameId, int x, int y) {
-        GameModel tmp = gameRepository.findById((long) gameId);
-
-        tmp.players.forEach(p -> {
-            if (p.posX == x && (p.posY == y - 1 || p.posY == y + 1))
-                p.lives--;
-            if (p.posY == y && (p.posX == x - 1 || p.posX == x + 1))
-                p.lives--;
-            if (p.posY == y && p.posX == x)
-                p.lives--;
-        });
-        long playersAlive = tmp.players.stream().filter(p -> p.lives > 0).count();
-        if (playersAlive <= 1) {
-            tmp.state = GameState.FINISHED;
-        }
-
-        List<String> fullMap = MapParsing.decodeMap(tmp.map);
-
-        // Vertical checks
-        StringBuilder line = new StringBuilder(fullMap.get(y + 1));
-        if (line.charAt(x) == 'W')
-            line.setCharAt(x, 'G');
-        fullMap.set(y + 1, line.toString());
-
-        line = new StringBuilder(fullMap.get(y - 1));
-        if (line.charAt(x) == 'W')
-            line.setCharAt(x, 'G');
-        fullMap.set(y - 1, line.toString());
-
-        //Horizontal checks
-        line = new StringBuilder(fullMap.get(y));
-        if (line.charAt(x + 1) == 'W')
-            line.setCharAt(x + 1, 'G');
-        if (line.charAt(x - 1) == 'W')
-            line.setCharAt(x - 1, 'G');
-        line.setCharAt(x, 'G');
-        fullMap.set(y, line.toString());
-
-        tmp.map = MapParsing.encodeMap(fullMap);
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getDanger"}, histogram = true)
+    public GameDanger getDanger(Integer gameId) {
+        if (gameId == null) {
+            throw new BadRequestException(); // 400
+        }
+
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            return new GameDanger(tmpGame.id, scheduler.currentTick(), tickDuration,
+                    engine.bombs(tmpGame).dangerCells());
+        } finally {
+            lock.unlock();
+        }
     }
 
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getReachable"}, histogram = true)
+    public GamePath getReachable(Integer gameId, Integer playerId) {
+        if (gameId == null || playerId == null) {
+            throw new BadRequestException(); // 400
+        }
 
-    @Transactional
-    public GameEntity movePlayer(Integer gameId, Integer playerId, Integer x, Integer y) {
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            PlayerModel tmpPlayer = getPlayer(tmpGame, playerId);
+            int width = tmpGame.grid.getWidth();
+            int[] dist = engine.paths(tmpGame).distances(tmpGame.grid, tmpGame.version, tmpPlayer.posX, tmpPlayer.posY);
+
+            List<GamePath.Step> steps = new ArrayList<>();
+            for (int cell = 0; cell < dist.length; cell++) {
+                if (dist[cell] != PathFinder.UNREACHABLE) {
+                    steps.add(new GamePath.Step(cell % width, cell / width, dist[cell]));
+                }
+            }
+            return new GamePath(tmpGame.id, tmpGame.version, true, steps);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "findPath"}, histogram = true)
+    public GamePath findPath(Integer gameId, Integer playerId, Integer x, Integer y) {
         if (gameId == null || playerId == null || x == null || y == null) {
             throw new BadRequestException(); // 400
         }
 
-        GameModel tmpGame = gameRepository.findById((long) gameId);
-        PlayerModel tmpPlayer = playerRepository.findById((long) playerId);
-        if (tmpGame == null || tmpPlayer == null) {
-            throw new NoSuchElementException(); // 404
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            PlayerModel tmpPlayer = getPlayer(tmpGame, playerId);
+            if (!tmpGame.grid.inBounds(x, y)) {
+                throw new BadRequestException(); // 400
+            }
+
+            List<int[]> cells = engine.paths(tmpGame).path(tmpGame.grid, tmpGame.version, tmpPlayer.posX, tmpPlayer.posY, x, y);
+            if (cells == null) {
+                return new GamePath(tmpGame.id, tmpGame.version, false, List.of());
+            }
+
+            List<GamePath.Step> steps = new ArrayList<>();
+            for (int i = 0; i < cells.size(); i++) {
+                steps.add(new GamePath.Step(cells.get(i)[0], cells.get(i)[1], i + 1));
+            }
+            return new GamePath(tmpGame.id, tmpGame.version, true, steps);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        if (tmpGame.state == GameState.FINISHED || tmpGame.state == GameState.STARTING ||
-                tmpPlayer.lives <= 0 || !isMoveLegal(tmpPlayer.posX, tmpPlayer.posY, x, y, gameId)) {
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "movePlayer"}, histogram = true)
+    // Returns false when the game resolves actions per tick and the move was only queued
+    public boolean movePlayer(Integer gameId, Integer playerId, Integer x, Integer y) {
+        if (gameId == null || playerId == null || x == null || y == null) {
             throw new BadRequestException(); // 400
         }
 
-        if (!canMove(tmpPlayer)) {
-            throw new ArithmeticException(); // 429
-        }
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            PlayerModel tmpPlayer = getPlayer(tmpGame, playerId);
 
-        tmpPlayer.posX = x;
-        tmpPlayer.posY = y;
-        tmpPlayer.lastMovement = System.currentTimeMillis();
+            if (tmpGame.state == GameState.FINISHED || tmpGame.state == GameState.STARTING ||
+                    tmpPlayer.lives <= 0 || !GameRules.isMoveLegal(tmpGame.grid, tmpPlayer.posX, tmpPlayer.posY, x, y)) {
+                throw new BadRequestException(); // 400
+            }
+
+            if (tmpGame.mode == GameMode.TICK) {
+                ActionQueue queue = engine.actions(tmpGame);
+                if (queue.moveCooldown(tmpPlayer.id, scheduler.currentTick() + 1, delayMovement) > 0) {
+                    throw new ArithmeticException(); // 429
+                }
+                queue.queueMove(tmpPlayer.id, x, y);
+                limiter.readyAt(tmpPlayer.id, ActionType.MOVE, scheduler.tickNanos(scheduler.currentTick() + 1));
+                return false;
+            }
 
-        return getGameById(gameId);
+            if (!limiter.tryAcquire(tmpPlayer.id, ActionType.MOVE, cooldownNanos(delayMovement))) {
+                throw new ArithmeticException(); // 429
+            }
+
+            tmpPlayer.posX = x;
+            tmpPlayer.posY = y;
+
+            engine.markDirty(tmpGame);
+            events.append(tmpGame, GameEventType.MOVE, tmpPlayer.id, x, y, 0, null);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    @Transactional
-    public void shrinkMap(int gameId) {
-        GameModel tmpGame = gameRepository.findById((long) gameId);
-        List<String> fullMap = MapParsing.decodeMap(tmpGame.map);
+    /**
+     * Applies the actions queued for this tick of a TICK mode game as one update. Bombs are
+     * planted first, where their players stand. Moves are then applied together: players
+     * aiming at the same cell, or swapping their cells, all stay where they are. Actions
+     * made illegal by the previous ones are dropped.
+     */
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "resolveTick"}, histogram = true)
+    public GameState resolveTick(int gameId) {
+        GameModel tmpGame = engine.get(gameId);
+        if (tmpGame == null) {
+            return GameState.FINISHED;
+        }
+
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            if (tmpGame.state == GameState.FINISHED) {
+                return tmpGame.state;
+            }
 
-        // first line
-        StringBuilder line = new StringBuilder(fullMap.get(offset));
-        for (int i = offset; i < fullMap.get(offset).length() - offset; i++) {
-            line.setCharAt(i, 'M');
+            ActionQueue queue = engine.actions(tmpGame);
+            Map<Long, int[]> bombs = new TreeMap<>();
+            queue.drainBombs().forEach((playerId, pos) -> {
+                PlayerModel tmpPlayer = getPlayer(tmpGame, playerId.intValue());
+                if (tmpPlayer.lives > 0 && tmpPlayer.posX == pos[0] && tmpPlayer.posY == pos[1]
+                        && tmpGame.grid.get(pos[0], pos[1]) != 'B') {
+                    placeBomb(tmpGame, pos[0], pos[1]);
+                    bombs.put(playerId, pos);
+                }
+            });
+
+            // Every move is checked against the positions before any of them is applied
+            Map<Long, int[]> legal = new TreeMap<>();
+            Map<Integer, Integer> targets = new HashMap<>();
+            queue.drainMoves().forEach((playerId, pos) -> {
+                PlayerModel tmpPlayer = getPlayer(tmpGame, playerId.intValue());
+                if (tmpPlayer.lives > 0 && GameRules.isMoveLegal(tmpGame.grid, tmpPlayer.posX, tmpPlayer.posY, pos[0], pos[1])) {
+                    legal.put(playerId, pos);
+                    targets.merge(pos[1] * tmpGame.grid.getWidth() + pos[0], 1, Integer::sum);
+                }
+            });
+            Map<Long, int[]> moves = new TreeMap<>();
+            legal.forEach((playerId, pos) -> {
+                PlayerModel tmpPlayer = getPlayer(tmpGame, playerId.intValue());
+                boolean contested = targets.get(pos[1] * tmpGame.grid.getWidth() + pos[0]) > 1;
+                boolean swapped = legal.entrySet().stream().anyMatch(other -> {
+                    PlayerModel otherPlayer = getPlayer(tmpGame, other.getKey().intValue());
+                    return !other.getKey().equals(playerId)
+                            && other.getValue()[0] == tmpPlayer.posX && other.getValue()[1] == tmpPlayer.posY
+                            && otherPlayer.posX == pos[0] && otherPlayer.posY == pos[1];
+                });
+                if (!contested && !swapped) {
+                    moves.put(playerId, pos);
+                }
+            });
+
+            if (bombs.isEmpty() && moves.isEmpty()) {
+                return tmpGame.state;
+            }
+
+            long tick = scheduler.currentTick();
+            moves.forEach((playerId, pos) -> {
+                PlayerModel tmpPlayer = getPlayer(tmpGame, playerId.intValue());
+                tmpPlayer.posX = pos[0];
+                tmpPlayer.posY = pos[1];
+                queue.moved(playerId, tick);
+                limiter.readyAt(playerId, ActionType.MOVE, scheduler.tickNanos(tick + delayMovement - 1));
+            });
+            bombs.keySet().forEach(playerId -> {
+                queue.bombed(playerId, tick);
+                limiter.readyAt(playerId, ActionType.BOMB, scheduler.tickNanos(tick + delayBomb - 1));
+            });
+
+            engine.markDirty(tmpGame);
+            bombs.forEach((playerId, pos) -> events.append(tmpGame, GameEventType.BOMB, playerId, pos[0], pos[1], bombRange, null));
+            moves.forEach((playerId, pos) -> events.append(tmpGame, GameEventType.MOVE, playerId, pos[0], pos[1], 0, null));
+            return tmpGame.state;
+        } finally {
+            lock.unlock();
         }
-        fullMap.set(offset, line.toString());
+    }
 
-        // last line
-        line = new StringBuilder(fullMap.get(fullMap.size() - offset - 1));
-        for (int i = offset; i < fullMap.get(fullMap.size() - offset - 1).length() - offset; i++) {
-            line.setCharAt(i, 'M');
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "shrinkMap"}, histogram = true)
+    public GameState shrinkMap(int gameId) {
+        GameModel tmpGame = engine.get(gameId);
+        if (tmpGame == null) {
+            return GameState.FINISHED;
         }
-        fullMap.set(fullMap.size() - offset - 1, line.toString());
 
-        // first column
-        for (int i = offset; i < fullMap.size() - offset; i++) {
-            line = new StringBuilder(fullMap.get(i));
-            line.setCharAt(offset, 'M');
-            fullMap.set(i, line.toString());
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            if (tmpGame.state == GameState.FINISHED) {
+                return tmpGame.state;
+            }
+
+            GameRules.shrink(tmpGame);
+            BombField field = engine.bombs(tmpGame);
+            if (!field.isEmpty()) {
+                field.refresh(tmpGame.grid);
+            }
+            engine.markDirty(tmpGame);
+            events.append(tmpGame, GameEventType.SHRINK);
+            return tmpGame.state;
+        } finally {
+            lock.unlock();
         }
+    }
 
-        // last column
-        for (int i = offset; i < fullMap.size() - offset; i++) {
-            line = new StringBuilder(fullMap.get(i));
-            line.setCharAt(fullMap.get(i).length() - offset - 1, 'M');
-            fullMap.set(i, line.toString());
+    // Arms the timers of a running game the engine loaded from the database, after a restart or
+    // a takeover: the shrink, on the schedule of the game's ticks, and the explosion of every bomb
+    // left on the board, counted from now. Called by the engine under the game lock
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "resumeGame"}, histogram = true)
+    public void resumeGame(GameModel game) {
+        int gameId = game.id.intValue();
+        long nextShrink = game.tick < delayFree
+                ? delayFree - game.tick
+                : delayShrink - (game.tick - delayFree) % delayShrink;
+        scheduler.scheduleAtFixedRate(gameId, "shrink", (int) nextShrink, delayShrink, () -> shrinkMap(gameId));
+        if (game.mode == GameMode.TICK) {
+            scheduler.scheduleAtFixedRate(gameId, "resolve", 1, 1, () -> resolveTick(gameId));
+        }
+        BombField field = engine.bombs(game);
+        for (int y = 0; y < game.grid.getHeight(); y++) {
+            for (int x = 0; x < game.grid.getWidth(); x++) {
+                if (game.grid.get(x, y) == 'B') {
+                    int bombX = x;
+                    int bombY = y;
+                    long dueTick = scheduler.currentTick() + delayBomb;
+                    field.plant(game.grid, x, y, bombRange, dueTick);
+                    scheduler.schedule(gameId, "explosion", delayBomb, () -> explodeBomb(gameId, bombX, bombY, dueTick));
+                }
+            }
         }
+    }
+
+    @Timed(value = "jws.game.operation", extraTags = {"operation", "getRemainingCooldown"}, histogram = true)
+    public long getRemainingCooldown(Integer gameId, Integer playerId, ActionType type) {
+        GameModel tmpGame = getRunningGame(gameId);
+        Lock lock = locks.of(gameId);
+        lock.lock();
+        try {
+            PlayerModel tmpPlayer = getPlayer(tmpGame, playerId);
+            if (tmpGame.mode == GameMode.TICK) {
+                ActionQueue queue = engine.actions(tmpGame);
+                long tick = scheduler.currentTick() + 1;
+                long ticks = type == ActionType.MOVE
+                        ? queue.moveCooldown(tmpPlayer.id, tick, delayMovement)
+                        : queue.bombCooldown(tmpPlayer.id, tick, delayBomb);
+                return ticks * tickDuration;
+            }
 
-        tmpGame.map = MapParsing.encodeMap(fullMap);
-        offset++;
+            return limiter.remainingMillis(tmpPlayer.id, type);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        // Kill players that are outside the map or on a M
-        tmpGame.players.forEach(p -> {
-            if (fullMap.get(p.posY).charAt(p.posX) == 'M') {
-                p.lives = 0;
+    private GameModel getRunningGame(int gameId) {
+        GameModel game = engine.get(gameId);
+        if (game == null) {
+            if (getGameById(gameId) == null) {
+                throw new NoSuchElementException(); // 404
             }
-        });
-        if (tmpGame.players.stream().filter(p -> p.lives > 0).count() <= 1) {
-            tmpGame.state = GameState.FINISHED;
+            throw new BadRequestException(); // 400
         }
+        return game;
     }
 
-    private boolean isMoveLegal(int prevPosX, int prevPosY, int newPosX, int newPosY, int gameId) {
-        GameModel tmpGame = gameRepository.findById((long) gameId);
+    private PlayerModel getPlayer(GameModel game, int playerId) {
+        return game.players.stream()
+                .filter(p -> p.id == playerId)
+                .findFirst()
+                .orElseThrow(); // 404
+    }
 
-        List<String> decodedMap = MapParsing.decodeMap(tmpGame.map);
-        String line = decodedMap.get(newPosY);
-        if (line.charAt(newPosX) != 'G') {
-            return false;
+    private GameEntity toEntity(GameModel game) {
+        GameEntity entity = FromModelToEntityConvert.convertGame(game);
+        if (entity != null && entity.map.isEmpty() && game.mapName != null) {
+            return entity.withMap(maps.get(game.mapName).rows);
         }
+        return entity;
+    }
 
-        int diffX = prevPosX - newPosX;
-        int diffY = prevPosY - newPosY;
-        if (diffX > 1 || diffY > 1) {
-            return false;
+    private void start(GameModel game) {
+        int id = game.id.intValue();
+        game.state = (game.players.size() <= 1) ? GameState.FINISHED : GameState.RUNNING;
+        game.startTime = LocalDateTime.now();
+        if (game.state == GameState.FINISHED) {
+            game.endTime = game.startTime;
+        }
+        game.version++;
+        if (game.map.isEmpty() && game.mapName != null) {
+            game.map.addAll(maps.get(game.mapName).rows);
         }
+        if (game.state == GameState.RUNNING) {
+            // A rolled back start must leave neither a game in the engine nor timers
+            onCommit(() -> {
+                if (engine.track(game)) {
+                    scheduler.scheduleAtFixedRate(id, "shrink", delayFree, delayShrink, () -> shrinkMap(id));
+                    if (game.mode == GameMode.TICK) {
+                        scheduler.scheduleAtFixedRate(id, "resolve", 1, 1, () -> resolveTick(id));
+                    }
+                }
+            });
+        }
+        events.appendOnCommit(game, GameEventType.START, null, null);
+    }
 
-        return ((diffX != 0) ^ (diffY != 0));
+    private void onCommit(Runnable action) {
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
     }
 
     private PlayerModel createNewPlayer(GameModel game, String name) {
@@ -289,46 +675,24 @@ public class GameService {
                 .withLives(3)
                 .withName(name)
                 .withGame(game);
-
-        switch (game.players.size()) {
-            case 0:
-                res.setPosX(1);
-                res.setPosY(1);
-                break;
-            case 1:
-                res.setPosX(15);
-                res.setPosY(1);
-                break;
-            case 2:
-                res.setPosX(15);
-                res.setPosY(13);
-                break;
-            case 3:
-                res.setPosX(1);
-                res.setPosY(13);
-                break;
-            default:
-                break;
-        }
+        MapTemplate template = maps.get(game.mapName);
+        int[] spawn = GameRules.spawn(game.players.size(), template.width, template.height);
+        res.setPosX(spawn[0]);
+        res.setPosY(spawn[1]);
 
         return res;
     }
 
-    private boolean canMove(PlayerModel player) {
-        if (player.lastMovement == null) {
-            return true;
-        }
-
-        long diff = System.currentTimeMillis() - player.lastMovement;
-        return diff > (long) delayMovement * tickDuration;
+    private void placeBomb(GameModel game, int x, int y) {
+        int gameId = game.id.intValue();
+        long dueTick = scheduler.currentTick() + delayBomb;
+        game.grid.set(x, y, 'B');
+        engine.bombs(game).plant(game.grid, x, y, bombRange, dueTick);
+        // Tied to this bomb, another one may be planted on the cell once a chain set it off
+        scheduler.schedule(gameId, "explosion", delayBomb, () -> explodeBomb(gameId, x, y, dueTick));
     }
 
-    private boolean canPlantBomb(PlayerModel player) {
-        if (player.lastBomb == null) {
-            return true;
-        }
-
-        long diff = System.currentTimeMillis() - player.lastBomb;
-        return diff > (long) delayBomb * tickDuration;
+    private long cooldownNanos(int delay) {
+        return TimeUnit.MILLISECONDS.toNanos((long) delay * tickDuration);
     }
 }
\ No newline at end of file
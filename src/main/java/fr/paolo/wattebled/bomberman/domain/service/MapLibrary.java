@@ -0,0 +1,101 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.domain.entity.MapTemplate;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.Startup;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Map templates read once at startup from JWS_MAP_PATH, either a single RLE file or a
+ * directory of them, each named after its file without the extension. Templates are
+ * immutable and shared by every game until it starts and gets its own copy.
+ */
+@Startup
+@ApplicationScoped
+public class MapLibrary {
+    private static final Logger LOGGER = Logger.getLogger(MapLibrary.class);
+
+    @ConfigProperty(name = "JWS_MAP_PATH")
+    String mapPath;
+
+    @ConfigProperty(name = "JWS_DEFAULT_MAP")
+    Optional<String> defaultMap;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Map<String, MapTemplate> templates;
+    private String defaultName;
+
+    @PostConstruct
+    void init() {
+        Path root = Path.of(mapPath);
+        List<Path> files;
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> list = Files.list(root)) {
+                files = list.filter(Files::isRegularFile).sorted().toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            files = List.of(root);
+        }
+
+        Map<String, MapTemplate> loaded = new TreeMap<>();
+        for (Path file : files) {
+            MapTemplate template = load(file);
+            loaded.put(template.name, template);
+        }
+        if (loaded.isEmpty()) {
+            throw new IllegalStateException("No map found in " + mapPath);
+        }
+
+        templates = Collections.unmodifiableMap(loaded);
+        defaultName = defaultMap.orElse(loaded.keySet().iterator().next());
+        if (!templates.containsKey(defaultName)) {
+            throw new IllegalStateException("Default map " + defaultName + " not found in " + mapPath);
+        }
+        LOGGER.infof("Loaded %d maps from %s, default is %s", templates.size(), mapPath, defaultName);
+    }
+
+    public MapTemplate get(String name) {
+        MapTemplate template = templates.get(name == null ? defaultName : name);
+        if (template == null) {
+            throw new NoSuchElementException();
+        }
+        return template;
+    }
+
+    public boolean contains(String name) {
+        return name == null || templates.containsKey(name);
+    }
+
+    public Set<String> names() {
+        return templates.keySet();
+    }
+
+    private MapTemplate load(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+
+        List<String> rows = List.copyOf(MapParsing.getMap(file.toString()));
+        GameMap grid = MapParsing.decodeTimer(registry).record(() -> MapParsing.decodeGrid(rows));
+        return new MapTemplate(name, rows, grid.getWidth(), grid.getHeight());
+    }
+}
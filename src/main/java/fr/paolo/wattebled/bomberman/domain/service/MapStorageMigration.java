@@ -0,0 +1,137 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.repository.GameRepository;
+import fr.paolo.wattebled.bomberman.domain.entity.MapTemplate;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+import java.util.*;
+
+/**
+ * One-time move of the boards from the former game_map element collection, one row per map
+ * line, to the board column of game. Runs at startup, unless JWS_MIGRATE_BOARDS is false, and
+ * does nothing once game_map is gone.
+ * The lines are read back by the collection's order column when it has one, otherwise in their
+ * physical order, as Hibernate did. A board is only written when every cell can still come from
+ * its map template, so lines read out of order are caught even when their walls match, and
+ * game_map is only dropped once every board was written; otherwise it is kept for the next
+ * start or a manual fix.
+ */
+@ApplicationScoped
+public class MapStorageMigration {
+    private static final Logger LOGGER = Logger.getLogger(MapStorageMigration.class);
+
+    GameRepository gameRepository;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "quarkus.hibernate-orm.database.default-schema")
+    Optional<String> schema;
+
+    @ConfigProperty(name = "JWS_MIGRATE_BOARDS", defaultValue = "true")
+    boolean enabled;
+
+    public MapStorageMigration() {
+        this.gameRepository = new GameRepository();
+    }
+
+    @Transactional
+    void migrate(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        EntityManager em = gameRepository.getEntityManager();
+        if (count(em, "information_schema.tables", "table_name = 'game_map'") == 0) {
+            return;
+        }
+
+        // Hibernate names the order column of an @OrderColumn without name map_ORDER
+        String order = count(em, "information_schema.columns", "table_name = 'game_map' and column_name = 'map_order'") == 0
+                ? "m.ctid" : "m.map_order";
+        String prefix = schema.map(s -> s + ".").orElse("");
+        @SuppressWarnings("unchecked")
+        List<Object[]> boards = em.createNativeQuery("select g.id, g.mapname, g.shrinklevel, string_agg(m.map, E'\\n' order by " + order + ") "
+                        + "from " + prefix + "game g join " + prefix + "game_map m on m.game_id = g.id "
+                        + "where g.board is null group by g.id, g.mapname, g.shrinklevel")
+                .getResultList();
+
+        int migrated = 0;
+        List<Long> rejected = new ArrayList<>();
+        for (Object[] board : boards) {
+            long gameId = ((Number) board[0]).longValue();
+            List<String> rows = List.of(((String) board[3]).split("\n", -1));
+            if (!matchesTemplate((String) board[1], ((Number) board[2]).intValue(), rows)) {
+                rejected.add(gameId);
+                continue;
+            }
+            migrated += em.createNativeQuery("update " + prefix + "game set board = convert_to(?1, 'UTF8') where id = ?2")
+                    .setParameter(1, String.join("\n", rows))
+                    .setParameter(2, gameId)
+                    .executeUpdate();
+        }
+        LOGGER.infof("Moved the boards of %d games from game_map to game.board", migrated);
+
+        if (!rejected.isEmpty()) {
+            LOGGER.warnf("Kept game_map: the lines of games %s do not rebuild their map template", rejected);
+            return;
+        }
+        em.createNativeQuery("drop table " + prefix + "game_map").executeUpdate();
+    }
+
+    private long count(EntityManager em, String view, String condition) {
+        Query query = em.createNativeQuery("select count(*) from " + view + " where table_schema = "
+                + (schema.isPresent() ? "?1" : "current_schema()") + " and " + condition);
+        schema.ifPresent(s -> query.setParameter(1, s));
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    // Same size as the template, the rings shrunk so far all metal, and every other cell either
+    // untouched or changed the way a game does: a wall blown up, or a bomb planted
+    private boolean matchesTemplate(String mapName, int shrinkLevel, List<String> rows) {
+        MapTemplate template;
+        try {
+            template = maps.get(mapName);
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+        if (rows.size() != template.height) {
+            return false;
+        }
+
+        List<String> lines = MapParsing.decodeMap(rows);
+        GameMap cells = MapParsing.decodeTimer(registry).record(() -> MapParsing.decodeGrid(template.rows));
+        for (int y = 0; y < template.height; ++y) {
+            String line = lines.get(y);
+            if (line.length() != template.width) {
+                return false;
+            }
+            for (int x = 0; x < template.width; ++x) {
+                int ring = Math.min(Math.min(x, y), Math.min(template.width - 1 - x, template.height - 1 - y));
+                char before = cells.get(x, y);
+                char after = line.charAt(x);
+                boolean shrunk = ring >= 1 && ring <= shrinkLevel;
+                if (shrunk ? after != 'M' : !(after == before
+                        || (before == 'W' && after == 'G')
+                        || ((before == 'W' || before == 'G') && after == 'B'))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
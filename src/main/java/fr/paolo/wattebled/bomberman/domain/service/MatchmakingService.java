@@ -0,0 +1,147 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Groups the players waiting for a game on the same map and mode. Every JWS_MATCH_INTERVAL the
+ * queues are cut into games of four, and a queue whose oldest player waited JWS_MATCH_FILL_TIMEOUT
+ * starts with the two or three players it has. Each game is created and started at once.
+ */
+@ApplicationScoped
+public class MatchmakingService {
+    private static final Logger LOGGER = Logger.getLogger(MatchmakingService.class);
+    public static final int GAME_SIZE = 4;
+    private static final int MIN_PLAYERS = 2;
+
+    @Inject
+    GameService service;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    GameOwnership ownership;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "JWS_MATCH_FILL_TIMEOUT", defaultValue = "10s")
+    Duration fillTimeout;
+
+    private final Map<QueueKey, Deque<Ticket>> queues = new HashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        registry.gauge("jws.matchmaking.waiting", waiting);
+    }
+
+    public Ticket enqueue(String playerName, String mapName, GameMode mode) {
+        if (!maps.contains(mapName)) {
+            throw new BadRequestException(); // 400
+        }
+
+        Ticket ticket = new Ticket(playerName, System.nanoTime());
+        QueueKey key = new QueueKey(maps.get(mapName).name, mode == null ? GameMode.REALTIME : mode);
+        synchronized (queues) {
+            queues.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(ticket);
+        }
+        waiting.incrementAndGet();
+        return ticket;
+    }
+
+    // False when the ticket was already put in a game
+    public boolean cancel(Ticket ticket) {
+        synchronized (queues) {
+            for (Deque<Ticket> queue : queues.values()) {
+                if (queue.remove(ticket)) {
+                    waiting.decrementAndGet();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(every = "${JWS_MATCH_INTERVAL:1s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void match() {
+        Map<QueueKey, List<List<Ticket>>> groups = new HashMap<>();
+        long now = System.nanoTime();
+        synchronized (queues) {
+            queues.forEach((key, queue) -> {
+                while (queue.size() >= GAME_SIZE
+                        || (queue.size() >= MIN_PLAYERS && now - queue.peekFirst().enqueuedAt >= fillTimeout.toNanos())) {
+                    List<Ticket> group = new ArrayList<>();
+                    while (group.size() < GAME_SIZE && !queue.isEmpty()) {
+                        group.add(queue.pollFirst());
+                    }
+                    groups.computeIfAbsent(key, k -> new ArrayList<>()).add(group);
+                }
+            });
+            queues.values().removeIf(Deque::isEmpty);
+        }
+
+        groups.forEach((key, batch) -> batch.forEach(group -> start(key, group)));
+    }
+
+    private void start(QueueKey key, List<Ticket> group) {
+        waiting.addAndGet(-group.size());
+        GameEntity game;
+        try {
+            game = service.createMatch(group.stream().map(t -> t.playerName).toList(), key.mapName, key.mode);
+        } catch (RuntimeException e) {
+            LOGGER.errorf(e, "Could not start a game for %d matched players", group.size());
+            group.forEach(t -> t.match.completeExceptionally(e));
+            return;
+        }
+
+        // The node creating a game owns it, as for the games created through the lobby
+        ownership.ownerUrl(game.id);
+        registry.counter("jws.matchmaking.games", "players", String.valueOf(group.size())).increment();
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).match.complete(new Match(game, game.players.get(i).id));
+        }
+    }
+
+    private record QueueKey(String mapName, GameMode mode) {
+    }
+
+    public static class Ticket {
+        final String playerName;
+        final long enqueuedAt;
+        final CompletableFuture<Match> match = new CompletableFuture<>();
+
+        Ticket(String playerName, long enqueuedAt) {
+            this.playerName = playerName;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        public CompletableFuture<Match> getMatch() {
+            return match;
+        }
+    }
+
+    public static class Match {
+        public final GameEntity game;
+        public final Long playerId;
+
+        Match(GameEntity game, Long playerId) {
+            this.game = game;
+            this.playerId = playerId;
+        }
+    }
+}
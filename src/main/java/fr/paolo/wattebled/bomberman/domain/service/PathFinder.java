@@ -0,0 +1,145 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+
+import java.util.*;
+
+/**
+ * Breadth-first distance fields over the ground cells of one game, one per starting cell.
+ * Fields are kept while the board does not change; when it does, opened cells (destroyed
+ * walls, exploded bombs) only relax the existing fields, while closed cells (new bombs,
+ * shrinking metal) drop them. Not thread safe, callers hold the game lock.
+ */
+public class PathFinder {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int MAX_FIELDS = 8;
+
+    private final int width;
+    private final int height;
+    private GameMap board;
+    private long version = -1;
+    private final Map<Integer, int[]> fields = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+            return size() > MAX_FIELDS;
+        }
+    };
+
+    public PathFinder(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    // Distance in moves from (x, y) to every cell, packed as y * width + x
+    public int[] distances(GameMap grid, long gridVersion, int x, int y) {
+        sync(grid, gridVersion);
+        return fields.computeIfAbsent(y * width + x, this::search);
+    }
+
+    // Cells to walk through from (fromX, fromY) to (toX, toY), without the start, null when unreachable
+    public List<int[]> path(GameMap grid, long gridVersion, int fromX, int fromY, int toX, int toY) {
+        int[] dist = distances(grid, gridVersion, fromX, fromY);
+        int cell = toY * width + toX;
+        if (dist[cell] == UNREACHABLE) {
+            return null;
+        }
+
+        LinkedList<int[]> steps = new LinkedList<>();
+        while (dist[cell] > 0) {
+            steps.addFirst(new int[]{cell % width, cell / width});
+            for (int next : neighbours(cell)) {
+                if (dist[next] == dist[cell] - 1) {
+                    cell = next;
+                    break;
+                }
+            }
+        }
+        return steps;
+    }
+
+    private void sync(GameMap grid, long gridVersion) {
+        if (gridVersion == version) {
+            return;
+        }
+        version = gridVersion;
+        if (board == null) {
+            board = grid.copy();
+            return;
+        }
+
+        List<Integer> opened = new ArrayList<>();
+        boolean closed = false;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean was = board.get(x, y) == 'G';
+                boolean is = grid.get(x, y) == 'G';
+                if (was != is) {
+                    board.set(x, y, grid.get(x, y));
+                    if (is) {
+                        opened.add(y * width + x);
+                    } else {
+                        closed = true;
+                    }
+                } else if (board.get(x, y) != grid.get(x, y)) {
+                    board.set(x, y, grid.get(x, y));
+                }
+            }
+        }
+
+        if (closed) {
+            fields.clear();
+        } else if (!opened.isEmpty()) {
+            fields.values().forEach(dist -> relax(dist, opened));
+        }
+    }
+
+    private int[] search(int source) {
+        int[] dist = new int[width * height];
+        Arrays.fill(dist, UNREACHABLE);
+        dist[source] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(source);
+        expand(dist, queue);
+        return dist;
+    }
+
+    // Opened cells can only shorten distances, so they are seeded from their neighbours
+    private void relax(int[] dist, List<Integer> opened) {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int cell : opened) {
+            for (int next : neighbours(cell)) {
+                if (dist[next] != UNREACHABLE && dist[next] + 1 < dist[cell]) {
+                    dist[cell] = dist[next] + 1;
+                }
+            }
+            if (dist[cell] != UNREACHABLE) {
+                queue.add(cell);
+            }
+        }
+        expand(dist, queue);
+    }
+
+    private void expand(int[] dist, ArrayDeque<Integer> queue) {
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            for (int next : neighbours(cell)) {
+                if (dist[cell] + 1 < dist[next] && board.get(next % width, next / width) == 'G') {
+                    dist[next] = dist[cell] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private int[] neighbours(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int[] res = new int[4];
+        int count = 0;
+        if (x > 0) res[count++] = cell - 1;
+        if (x < width - 1) res[count++] = cell + 1;
+        if (y > 0) res[count++] = cell - width;
+        if (y < height - 1) res[count++] = cell + width;
+        return Arrays.copyOf(res, count);
+    }
+}
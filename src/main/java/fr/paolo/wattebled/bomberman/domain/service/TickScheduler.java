@@ -0,0 +1,168 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hashed timing wheel advanced every JWS_TICK_DURATION milliseconds by a single thread.
+ * Every task due on a tick is run in the same batch, grouped by game, and all the tasks
+ * of a game are dropped as soon as one of them reports the game as FINISHED. A task that
+ * throws is logged and only loses that run; a periodic one still comes back.
+ */
+@ApplicationScoped
+public class TickScheduler {
+    private static final Logger LOGGER = Logger.getLogger(TickScheduler.class);
+    private static final int WHEEL_SIZE = 512;
+
+    @ConfigProperty(name = "JWS_TICK_DURATION")
+    int tickDuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final List<List<Task>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final Map<Long, GameTasks> games = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private ScheduledExecutorService executor;
+    private long currentTick = 0;
+    private long startNanos;
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        registry.gauge("jws.scheduler.pending", pending);
+        registry.gauge("jws.scheduler.games", games, Map::size);
+        startNanos = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "game-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public synchronized long currentTick() {
+        return currentTick;
+    }
+
+    // System.nanoTime() at which the given tick is due
+    public long tickNanos(long tick) {
+        return startNanos + TimeUnit.MILLISECONDS.toNanos(tick * tickDuration);
+    }
+
+    public void schedule(long gameId, String name, int delayTicks, Supplier<GameState> action) {
+        add(new Task(games.computeIfAbsent(gameId, GameTasks::new), name, action, 0), delayTicks);
+    }
+
+    public void scheduleAtFixedRate(long gameId, String name, int initialDelayTicks, int periodTicks, Supplier<GameState> action) {
+        add(new Task(games.computeIfAbsent(gameId, GameTasks::new), name, action, Math.max(1, periodTicks)), initialDelayTicks);
+    }
+
+    public void cancelGame(long gameId) {
+        GameTasks tasks = games.remove(gameId);
+        if (tasks != null) {
+            tasks.cancelled = true;
+        }
+    }
+
+    private synchronized void add(Task task, int delayTicks) {
+        task.dueTick = currentTick + Math.max(1, delayTicks);
+        wheel.get((int) (task.dueTick % WHEEL_SIZE)).add(task);
+        pending.incrementAndGet();
+    }
+
+    private void tick() {
+        Map<GameTasks, List<Task>> batch = new LinkedHashMap<>();
+        synchronized (this) {
+            currentTick++;
+            Iterator<Task> it = wheel.get((int) (currentTick % WHEEL_SIZE)).iterator();
+            while (it.hasNext()) {
+                Task task = it.next();
+                if (task.game.cancelled) {
+                    it.remove();
+                    pending.decrementAndGet();
+                } else if (task.dueTick <= currentTick) {
+                    it.remove();
+                    pending.decrementAndGet();
+                    batch.computeIfAbsent(task.game, g -> new ArrayList<>()).add(task);
+                }
+            }
+        }
+
+        batch.forEach(this::runGameTasks);
+    }
+
+    private void runGameTasks(GameTasks game, List<Task> tasks) {
+        for (Task task : tasks) {
+            if (game.cancelled) {
+                return;
+            }
+
+            long dueNanos = tickNanos(task.dueTick);
+            registry.timer("jws.scheduler.lag", "task", task.name)
+                    .record(Math.max(0, System.nanoTime() - dueNanos), TimeUnit.NANOSECONDS);
+
+            GameState state = null;
+            Timer.Sample sample = Timer.start(registry);
+            try {
+                state = task.action.get();
+            } catch (RuntimeException e) {
+                LOGGER.errorf(e, "Scheduled task %s failed for game %d", task.name, game.gameId);
+            } finally {
+                sample.stop(registry.timer("jws.scheduler.task", "task", task.name));
+            }
+
+            if (state == GameState.FINISHED) {
+                cancelGame(game.gameId);
+            } else if (task.period > 0) {
+                add(task, task.period);
+            }
+        }
+    }
+
+    private static class GameTasks {
+        final long gameId;
+        volatile boolean cancelled = false;
+
+        GameTasks(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    private static class Task {
+        final GameTasks game;
+        final String name;
+        final Supplier<GameState> action;
+        final int period;
+        long dueTick;
+
+        Task(GameTasks game, String name, Supplier<GameState> action, int period) {
+            this.game = game;
+            this.name = name;
+            this.action = action;
+            this.period = period;
+        }
+    }
+}
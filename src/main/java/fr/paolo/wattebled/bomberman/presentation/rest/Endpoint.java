@@ -1,84 +1,190 @@
 package fr.paolo.wattebled.bomberman.presentation.rest;
 
+import fr.paolo.wattebled.bomberman.domain.entity.ActionResult;
+import fr.paolo.wattebled.bomberman.domain.entity.GameAction;
+import fr.paolo.wattebled.bomberman.domain.entity.GameDanger;
+import fr.paolo.wattebled.bomberman.domain.entity.GameDelta;
 import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.GamePath;
+import fr.paolo.wattebled.bomberman.domain.entity.GameSummaryEntity;
+import fr.paolo.wattebled.bomberman.domain.service.ActionBatchService;
+import fr.paolo.wattebled.bomberman.domain.service.CooldownLimiter;
+import fr.paolo.wattebled.bomberman.domain.service.GameOwnership;
 import fr.paolo.wattebled.bomberman.domain.service.GameService;
+import fr.paolo.wattebled.bomberman.domain.service.MapLibrary;
+import fr.paolo.wattebled.bomberman.domain.service.MatchmakingService;
+import fr.paolo.wattebled.bomberman.presentation.rest.request.ActionsRequest;
 import fr.paolo.wattebled.bomberman.presentation.rest.request.CoordsRequest;
+import fr.paolo.wattebled.bomberman.presentation.rest.request.CreateGameRequest;
 import fr.paolo.wattebled.bomberman.presentation.rest.request.NameRequest;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.ActionsResponse;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.DangerResponse;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.DeltaGameResponse;
 import fr.paolo.wattebled.bomberman.presentation.rest.response.DetailGameResponse;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.MatchResponse;
+import fr.paolo.wattebled.bomberman.presentation.rest.response.PathResponse;
 import fr.paolo.wattebled.bomberman.presentation.rest.response.SimpleGameResponse;
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import fr.paolo.wattebled.bomberman.utils.GameState;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @Path("/")
 @Produces("application/json")
 @Consumes("application/json")
 public class Endpoint {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    // Exact wait of a 429, Retry-After only has whole seconds while cooldowns are a few ticks
+    static final String RETRY_AFTER_MS = "X-Jws-Retry-After-Ms";
+
     @Inject
     GameService service;
 
+    @Inject
+    ActionBatchService batchService;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    GameOwnership ownership;
+
+    @Inject
+    MatchmakingService matchmaking;
+
+    @Inject
+    CooldownLimiter limiter;
+
+    @Inject
+    GameWireCache wire;
+
     @ConfigProperty(name = "JWS_TICK_DURATION")
     int tickDuration;
 
+    @ConfigProperty(name = "JWS_DELAY_MOVEMENT")
+    int delayMovement;
+
     @ConfigProperty(name = "JWS_DELAY_BOMB")
     int delayBomb;
 
-    @ConfigProperty(name = "JWS_DELAY_FREE")
-    int delayFree;
-
-    @ConfigProperty(name = "JWS_DELAY_SHRINK")
-    int delayShrink;
+    @ConfigProperty(name = "JWS_MATCH_WAIT", defaultValue = "30s")
+    Duration matchWait;
 
     @GET
     @Path("/games")
-    public Response getGamesEndpoint() {
-        // 200: The list of games
-        // No other status code
-        List<GameEntity> gameSet = service.getAllGames();
-        if (gameSet == null) {
-            return Response.ok(new ArrayList<>()).build();
+    public Response getGamesEndpoint(@QueryParam("state") GameState state,
+                                     @QueryParam("after") Long after,
+                                     @QueryParam("limit") Integer limit,
+                                     @Context UriInfo uriInfo) {
+        // 200: A page of games, ordered by id, with a Link to the next page when it is full
+        // 400: Bad request (after is negative, limit is not between 1 and 200)
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if ((after != null && after < 0) || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return Response.status(400).build();
         }
 
-        List<SimpleGameResponse> response = gameSet.stream()
-                .map(g -> new SimpleGameResponse(g.id, (long) g.players.size(), g.state))
+        List<GameSummaryEntity> page = service.getGames(state, after, pageSize);
+        List<SimpleGameResponse> response = page.stream()
+                .map(g -> new SimpleGameResponse(g.id, (long) g.players, g.state))
                 .toList();
-        return Response.ok(response).build();
+
+        Response.ResponseBuilder builder = Response.ok(response);
+        if (page.size() == pageSize) {
+            builder.link(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam("after", page.get(page.size() - 1).id)
+                    .replaceQueryParam("limit", pageSize)
+                    .build(), "next");
+        }
+        return builder.build();
     }
 
     @POST
     @Path("/games")
-    public Response createNewGameEndpoint(NameRequest request) {
+    public Response createNewGameEndpoint(CreateGameRequest request) {
         // 200: The game has been created
-        // 400: The request is null, or the player name is null
+        // 400: The request is null, or the player name is null, or the map does not exist
         if (request == null || request.name == null) {
             return Response.status(400).build();
         }
 
-        GameEntity newGame = service.createGame(request.name);
+        GameEntity newGame;
+        try {
+            newGame = service.createGame(request.name, request.map, request.mode);
+        } catch (BadRequestException e) {
+            return Response.status(400).build();
+        }
+
+        // The node creating a game owns it, so the players joining it are sent here
+        ownership.ownerUrl(newGame.id);
 
         return createDetailGameResponse(newGame);
     }
 
+    @POST
+    @Path("/matchmaking")
+    public void matchmakingEndpoint(CreateGameRequest request, @Suspended AsyncResponse asyncResponse) {
+        // 200: The player has been matched with others, the game is already started
+        // 400: The request is null, or the player name is null, or the map does not exist
+        // 408: Not enough players asked for the same map and mode in time
+        // 500: The game of the matched players could not be created
+        if (request == null || request.name == null || request.name.isEmpty()) {
+            asyncResponse.resume(Response.status(400).build());
+            return;
+        }
+
+        MatchmakingService.Ticket ticket;
+        try {
+            ticket = matchmaking.enqueue(request.name, request.map, request.mode);
+        } catch (BadRequestException e) {
+            asyncResponse.resume(Response.status(400).build());
+            return;
+        }
+
+        // A player already taken out of the queue waits for the game being created instead
+        asyncResponse.setTimeout(matchWait.toMillis(), TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(r -> {
+            if (matchmaking.cancel(ticket)) {
+                r.resume(Response.status(408).build());
+            } else {
+                r.setTimeout(matchWait.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        ticket.getMatch().whenComplete((match, error) -> asyncResponse.resume(createMatchResponse(match)));
+    }
+
+    @GET
+    @Path("/maps")
+    public Response getMapsEndpoint() {
+        // 200: The names of the maps a game can be created with
+        // No other status code
+        return Response.ok(maps.names()).build();
+    }
+
     @GET
     @Path("/games/{gameId}")
-    public Response getGameInfoEndpoint(@PathParam("gameId") Integer gameId) {
-        // 200: The game info of this id
+    @Produces({"application/json", GameWireFormat.MEDIA_TYPE})
+    public Response getGameInfoEndpoint(@PathParam("gameId") Integer gameId, @QueryParam("since") Long since,
+                                        @HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        // 200: The game info of this id, or only what changed after version `since`, or the full game in the binary format when accepted
         // 404: The game of this id does not exist
         if (gameId == null) {
             return Response.status(400).build();
         }
 
-        GameEntity newGame = service.getGameById(gameId);
-
-        if (newGame == null) {
-            return Response.status(404).build();
-        }
-
-        return createDetailGameResponse(newGame);
+        return createGameResponse(gameId, since, accept);
     }
 
     @POST
@@ -119,88 +225,279 @@ public class Endpoint {
             return Response.status(404).build();
         }
 
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                service.shrinkMap(gameId);
-            }
-        }, (long) tickDuration * delayFree, (long) tickDuration * delayShrink);
-
         return createDetailGameResponse(newGame);
     }
 
     @POST
     @Path("/games/{gameId}/players/{playerId}/bomb")
-    public Response putBombEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId, CoordsRequest request) {
+    @Produces({"application/json", GameWireFormat.MEDIA_TYPE})
+    public Response putBombEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId,
+                                    @QueryParam("since") Long since, @HeaderParam(HttpHeaders.ACCEPT) String accept,
+                                    CoordsRequest request) {
         // 200: Bomb successfully put
+        // 202: The game resolves actions per tick, the bomb will be put on the next one
         // 400: The request is null, or the game is not started or the player is already dead, or the coords are wrong.
         // 404: The game of this id does not exist or the player of this id does not exist
-        // 429: The player has already put a bomb in the last X ticks
+        // 429: The player has already put a bomb in the last X ticks, Retry-After tells when the next one is allowed
         if (request == null) {
             return Response.status(400).build();
         }
+        if (playerId != null && limiter.remainingMillis(playerId, ActionType.BOMB) > 0) {
+            return tooManyRequests(playerId, ActionType.BOMB);
+        }
 
-        GameEntity newGame;
+        boolean applied;
         try {
-            newGame = service.plantBomb(gameId, playerId, request.posX, request.posY);
+            applied = service.plantBomb(gameId, playerId, request.posX, request.posY);
         } catch (NoSuchElementException e) {
             return Response.status(404).build();
         } catch (BadRequestException e) {
             return Response.status(400).build();
         } catch (ArithmeticException e) {
-            return Response.status(429).build();
+            return tooManyRequests(playerId, ActionType.BOMB);
         }
 
-        Timer timer = new Timer();
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                service.explodeBomb(gameId, request.posX, request.posY);
-            }
-        }, (long) tickDuration * delayBomb);
+        return applied ? createGameResponse(gameId, since, accept) : accepted(createGameResponse(gameId, since, accept));
+    }
 
-        return createDetailGameResponse(newGame);
+    @GET
+    @Path("/games/{gameId}/replay")
+    public Response replayGameEndpoint(@PathParam("gameId") Integer gameId, @QueryParam("tick") Long tick) {
+        // 200: The game rebuilt from its event log as it was at the end of this tick, or its last state without tick
+        // 400: The tick is negative
+        // 404: No event was recorded for the game of this id up to this tick
+        if (gameId == null || (tick != null && tick < 0)) {
+            return Response.status(400).build();
+        }
+
+        try {
+            return createDetailGameResponse(service.replayGame(gameId, tick == null ? Long.MAX_VALUE : tick));
+        } catch (NoSuchElementException e) {
+            return Response.status(404).build();
+        }
+    }
+
+    @GET
+    @Path("/games/{gameId}/danger")
+    public Response getDangerEndpoint(@PathParam("gameId") Integer gameId) {
+        // 200: The tick at which every cell threatened by a bomb will be hit, chain reactions included
+        // 400: The game is not started or already finished
+        // 404: The game of this id does not exist
+        GameDanger danger;
+        try {
+            danger = service.getDanger(gameId);
+        } catch (NoSuchElementException e) {
+            return Response.status(404).build();
+        } catch (BadRequestException e) {
+            return Response.status(400).build();
+        }
+
+        DangerResponse response = new DangerResponse(
+                danger.id,
+                danger.tick,
+                danger.tickDuration,
+                danger.cells.stream()
+                        .map(c -> new DangerResponse.Cell(c.posX, c.posY, c.tick))
+                        .toList());
+        return Response.ok(response).build();
+    }
+
+    @GET
+    @Path("/games/{gameId}/players/{playerId}/reachable")
+    public Response getReachableEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId) {
+        // 200: Every cell the player can walk to, with the number of moves to get there
+        // 400: The game is not started or already finished
+        // 404: The game of this id does not exist or the player of this id does not exist
+        try {
+            return Response.ok(toPathResponse(service.getReachable(gameId, playerId))).build();
+        } catch (NoSuchElementException e) {
+            return Response.status(404).build();
+        } catch (BadRequestException e) {
+            return Response.status(400).build();
+        }
+    }
+
+    @GET
+    @Path("/games/{gameId}/players/{playerId}/path")
+    public Response getPathEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId,
+                                    @QueryParam("posX") Integer posX, @QueryParam("posY") Integer posY) {
+        // 200: The shortest list of moves to reach the cell, or reachable false when there is none
+        // 400: The coords are missing or outside of the map, or the game is not started or already finished
+        // 404: The game of this id does not exist or the player of this id does not exist
+        try {
+            return Response.ok(toPathResponse(service.findPath(gameId, playerId, posX, posY))).build();
+        } catch (NoSuchElementException e) {
+            return Response.status(404).build();
+        } catch (BadRequestException e) {
+            return Response.status(400).build();
+        }
     }
 
     @POST
     @Path("/games/{gameId}/players/{playerId}/move")
-    public Response movePlayerEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId, CoordsRequest request) {
+    @Produces({"application/json", GameWireFormat.MEDIA_TYPE})
+    public Response movePlayerEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId,
+                                       @QueryParam("since") Long since, @HeaderParam(HttpHeaders.ACCEPT) String accept,
+                                       CoordsRequest request) {
         // 200: Player successfully moved
+        // 202: The game resolves actions per tick, the player will move on the next one
         // 400: The request is null, or the game is not started or the player is already dead, or the coords are wrong or the player is not allowed to move.
         // 404: The game of this id does not exist or the player of this id does not exist
-        // 429: The player has already moved in the last X ticks
+        // 429: The player has already moved in the last X ticks, Retry-After tells when the next move is allowed
         if (request == null) {
             return Response.status(400).build();
         }
+        if (playerId != null && limiter.remainingMillis(playerId, ActionType.MOVE) > 0) {
+            return tooManyRequests(playerId, ActionType.MOVE);
+        }
 
-        GameEntity newGame;
+        boolean applied;
         try {
-            newGame = service.movePlayer(gameId, playerId, request.posX, request.posY);
+            applied = service.movePlayer(gameId, playerId, request.posX, request.posY);
         } catch (NoSuchElementException e) {
             return Response.status(404).build();
         } catch (BadRequestException e) {
             return Response.status(400).build();
         } catch (ArithmeticException e) {
-            return Response.status(429).build();
+            return tooManyRequests(playerId, ActionType.MOVE);
+        }
+
+        return applied ? createGameResponse(gameId, since, accept) : accepted(createGameResponse(gameId, since, accept));
+    }
+
+    @POST
+    @Path("/games/{gameId}/players/{playerId}/actions")
+    public void batchActionsEndpoint(@PathParam("gameId") Integer gameId, @PathParam("playerId") Integer playerId,
+                                     ActionsRequest request, @Suspended AsyncResponse asyncResponse) {
+        // 200: The actions have been applied in order, each one as soon as its cooldown allowed it
+        // 400: The request is null, empty, too long, or one of the actions is incomplete
+        // 404: The game of this id does not exist
+        if (gameId == null || playerId == null || request == null || request.actions == null || request.actions.isEmpty()
+                || request.actions.size() > ActionBatchService.MAX_ACTIONS
+                || request.actions.stream().anyMatch(a -> a == null || a.type == null || a.posX == null || a.posY == null)) {
+            asyncResponse.resume(Response.status(400).build());
+            return;
+        }
+
+        if (service.getGameById(gameId) == null) {
+            asyncResponse.resume(Response.status(404).build());
+            return;
+        }
+
+        List<GameAction> actions = request.actions.stream()
+                .map(a -> new GameAction(a.type, a.posX, a.posY))
+                .toList();
+        ActionBatchService.Batch batch = batchService.submit(gameId, playerId, actions);
+
+        // Every action waits at most one full cooldown, anything longer means the game stopped
+        long timeout = (long) (actions.size() + 1) * Math.max(delayMovement, delayBomb) * tickDuration;
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(r -> r.resume(createActionsResponse(gameId, batch.getResults())));
+        batch.getCompletion().thenAccept(results -> asyncResponse.resume(createActionsResponse(gameId, results)));
+    }
+
+    private Response createMatchResponse(MatchmakingService.Match match) {
+        if (match == null) {
+            return Response.status(500).build();
+        }
+        return Response.ok(new MatchResponse(match.playerId, toDetailGameResponse(match.game))).build();
+    }
+
+    private Response createActionsResponse(Integer gameId, List<ActionResult> results) {
+        GameEntity game = service.getGameById(gameId);
+        ActionsResponse response = new ActionsResponse(
+                results.stream()
+                        .map(r -> new ActionsResponse.Result(r.type, r.status, r.tick))
+                        .toList(),
+                game == null ? null : toDetailGameResponse(game));
+        return Response.ok(response).build();
+    }
+
+    private Response createGameResponse(Integer gameId, Long since, String accept) {
+        // The binary format always carries the full game, shared by every client of the same version
+        if (GameWireFormat.accepts(accept)) {
+            byte[] data = wire.live(gameId);
+            if (data == null) {
+                GameEntity game = service.getGameById(gameId);
+                if (game == null) {
+                    return Response.status(404).build();
+                }
+                data = GameWireFormat.encode(game);
+            }
+            return Response.ok(data, GameWireFormat.MEDIA_TYPE).build();
+        }
+
+        // Falls back to the full game when the client is too far behind
+        if (since != null) {
+            GameDelta delta = service.getGameDelta(gameId, since);
+            if (delta != null) {
+                return Response.ok(toDeltaGameResponse(delta)).build();
+            }
+        }
+
+        GameEntity newGame = service.getGameById(gameId);
+        if (newGame == null) {
+            return Response.status(404).build();
         }
 
         return createDetailGameResponse(newGame);
     }
 
+    private Response tooManyRequests(int playerId, ActionType type) {
+        long millis = limiter.remainingMillis(playerId, type);
+        return Response.status(429)
+                .header(HttpHeaders.RETRY_AFTER, Math.max(1, (millis + 999) / 1000))
+                .header(RETRY_AFTER_MS, millis)
+                .build();
+    }
+
+    private Response accepted(Response response) {
+        return response.getStatus() == 200 ? Response.fromResponse(response).status(202).build() : response;
+    }
+
     private Response createDetailGameResponse(GameEntity newGame) {
+        return Response.ok(toDetailGameResponse(newGame)).build();
+    }
+
+    static DetailGameResponse toDetailGameResponse(GameEntity newGame) {
         DetailGameResponse response = new DetailGameResponse(
                 LocalDateTime.now(),
                 newGame.state,
                 new ArrayList<>(),
                 List.copyOf(newGame.map),
-                newGame.id);
+                newGame.id,
+                newGame.version,
+                newGame.mode);
 
         newGame.getPlayers().forEach(i ->
                 response.players.add(
                         new DetailGameResponse.Player(i.id, i.name, i.lives, i.posX, i.posY)
                 ));
 
-        return Response.ok(response).build();
+        return response;
+    }
+
+    static PathResponse toPathResponse(GamePath path) {
+        return new PathResponse(
+                path.id,
+                path.version,
+                path.reachable,
+                path.steps.stream()
+                        .map(s -> new PathResponse.Step(s.posX, s.posY, s.distance))
+                        .toList());
+    }
+
+    static DeltaGameResponse toDeltaGameResponse(GameDelta delta) {
+        return new DeltaGameResponse(
+                delta.id,
+                delta.since,
+                delta.version,
+                delta.state,
+                delta.cells.stream()
+                        .map(c -> new DeltaGameResponse.Cell(c.posX, c.posY, String.valueOf(c.tile)))
+                        .toList(),
+                delta.players.stream()
+                        .map(p -> new DeltaGameResponse.Player(p.id, p.lives, p.posX, p.posY))
+                        .toList());
     }
 }
@@ -0,0 +1,102 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import fr.paolo.wattebled.bomberman.domain.service.GameOwnership;
+import org.jboss.logging.Logger;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends the requests about a game owned by another node to that node and answers with its
+ * response. Event streams are redirected instead, since they never complete.
+ */
+@Provider
+@PreMatching
+public class GameForwardingFilter implements ContainerRequestFilter {
+    private static final Logger LOGGER = Logger.getLogger(GameForwardingFilter.class);
+    private static final Pattern GAME_PATH = Pattern.compile("^/?games/(\\d+)(/.*)?$");
+    private static final String FORWARDED_HEADER = "X-Jws-Forwarded";
+    private static final List<String> FORWARDED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.ACCEPT, HttpHeaders.AUTHORIZATION, "Last-Event-ID");
+    private static final List<String> RETURNED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.LINK, HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER, Endpoint.RETRY_AFTER_MS);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    @Inject
+    GameOwnership ownership;
+
+    @Override
+    public void filter(ContainerRequestContext request) throws IOException {
+        if (!ownership.isEnabled() || request.getHeaderString(FORWARDED_HEADER) != null) {
+            return;
+        }
+
+        Matcher matcher = GAME_PATH.matcher(request.getUriInfo().getPath());
+        if (!matcher.matches()) {
+            return;
+        }
+
+        String ownerUrl = ownership.ownerUrl(Long.parseLong(matcher.group(1)));
+        if (ownerUrl == null) {
+            return;
+        }
+
+        URI target = URI.create(ownerUrl + request.getUriInfo().getRequestUri().getRawPath()
+                + (request.getUriInfo().getRequestUri().getRawQuery() == null ? "" : "?" + request.getUriInfo().getRequestUri().getRawQuery()));
+        if (matcher.group(2) != null && matcher.group(2).endsWith("/stream")) {
+            request.abortWith(Response.temporaryRedirect(target).build());
+            return;
+        }
+
+        byte[] body = request.hasEntity() ? request.getEntityStream().readAllBytes() : new byte[0];
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofMinutes(1))
+                .header(FORWARDED_HEADER, ownership.nodeId())
+                .method(request.getMethod(), body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        FORWARDED_HEADERS.forEach(name -> {
+            String value = request.getHeaderString(name);
+            if (value != null) {
+                forwarded.header(name, value);
+            }
+        });
+
+        HttpResponse<byte[]> response;
+        try {
+            response = CLIENT.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.abortWith(Response.status(503).build());
+            return;
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Could not forward %s %s to %s", request.getMethod(), target.getPath(), ownerUrl);
+            request.abortWith(Response.status(503).build());
+            return;
+        }
+
+        Response.ResponseBuilder builder = Response.status(response.statusCode());
+        if (response.body().length > 0) {
+            builder.entity(response.body());
+        }
+        RETURNED_HEADERS.forEach(name -> response.headers().firstValue(name).ifPresent(value -> builder.header(name, value)));
+        request.abortWith(builder.build());
+    }
+}
@@ -0,0 +1,147 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.paolo.wattebled.bomberman.domain.entity.GameChangedEvent;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.service.GameService;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes game state to Server-Sent Events subscribers. Changes are coalesced per game and
+ * each pending game is serialized once, then broadcast to all of its subscribers.
+ */
+@Path("/games/{gameId}/stream")
+@ApplicationScoped
+public class GameStreamEndpoint {
+    private static final Logger LOGGER = Logger.getLogger(GameStreamEndpoint.class);
+
+    @Inject
+    GameService service;
+
+    @Inject
+    ObjectMapper mapper;
+
+    private final Map<Long, Subscribers> subscribers = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService pusher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "game-push");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Sse sse;
+
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void subscribe(@PathParam("gameId") Integer gameId, @Context SseEventSink sink, @Context Sse sse) {
+        // 404: The game of this id does not exist
+        GameEntity game = service.getGameById(gameId);
+        if (game == null) {
+            throw new NotFoundException();
+        }
+
+        this.sse = sse;
+        if (game.state != GameState.FINISHED) {
+            // Registered before the first frame is read, so no change in between is missed. The
+            // event id is the version: clients drop the frames not newer than the last one they got
+            subscribers.compute((long) gameId, (id, current) -> {
+                Subscribers subs = current == null ? new Subscribers(id, sse.newBroadcaster()) : current;
+                subs.register(sink);
+                return subs;
+            });
+            game = service.getGameById(gameId);
+        }
+
+        sink.send(frame(game));
+        if (game.state == GameState.FINISHED) {
+            sink.close();
+        }
+    }
+
+    void onGameChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) GameChangedEvent event) {
+        if (subscribers.containsKey(event.gameId) && pending.add(event.gameId)) {
+            pusher.execute(() -> push(event.gameId));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pusher.shutdownNow();
+        subscribers.values().forEach(s -> s.broadcaster.close());
+    }
+
+    private void push(long gameId) {
+        pending.remove(gameId);
+        Subscribers game = subscribers.get(gameId);
+        if (game == null) {
+            return;
+        }
+
+        try {
+            GameEntity entity = service.getGameById((int) gameId);
+            game.broadcaster.broadcast(frame(entity));
+            if (entity.state == GameState.FINISHED) {
+                subscribers.remove(gameId, game);
+                game.broadcaster.close();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.errorf(e, "Could not push state of game %d", gameId);
+        }
+    }
+
+    private OutboundSseEvent frame(GameEntity game) {
+        try {
+            return sse.newEventBuilder()
+                    .id(String.valueOf(game.version))
+                    .name("game")
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                    .data(String.class, mapper.writeValueAsString(Endpoint.toDetailGameResponse(game)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class Subscribers {
+        final long gameId;
+        final SseBroadcaster broadcaster;
+        final AtomicInteger count = new AtomicInteger();
+
+        Subscribers(long gameId, SseBroadcaster broadcaster) {
+            this.gameId = gameId;
+            this.broadcaster = broadcaster;
+            broadcaster.onClose(s -> unregister());
+        }
+
+        void register(SseEventSink sink) {
+            count.incrementAndGet();
+            broadcaster.register(sink);
+        }
+
+        // Removed under the lock of the map entry, so a concurrent subscribe registers in a new set
+        private void unregister() {
+            subscribers.computeIfPresent(gameId, (id, current) ->
+                    current == this && count.decrementAndGet() <= 0 ? null : current);
+        }
+    }
+}
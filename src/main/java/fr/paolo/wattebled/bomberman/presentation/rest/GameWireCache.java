@@ -0,0 +1,75 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.service.GameService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary encodings of the games live on this node, built once per game version and shared
+ * by every client asking for it. Never reaches the database.
+ */
+@ApplicationScoped
+public class GameWireCache {
+    @Inject
+    GameService service;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<Long, Encoded> encoded = new ConcurrentHashMap<>();
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = registry.counter("jws.wire.cache", "result", "hit");
+        misses = registry.counter("jws.wire.cache", "result", "miss");
+        registry.gauge("jws.wire.cache.games", encoded, Map::size);
+    }
+
+    // Null when the game is not running on this node
+    public byte[] live(int gameId) {
+        Long version = service.getLiveVersion(gameId);
+        if (version == null) {
+            return null;
+        }
+
+        Encoded cached = encoded.get((long) gameId);
+        if (cached != null && cached.version == version) {
+            hits.increment();
+            return cached.data;
+        }
+
+        misses.increment();
+        GameEntity game = service.getLiveGame(gameId);
+        if (game == null) {
+            return null;
+        }
+        Encoded fresh = new Encoded(game.version, GameWireFormat.encode(game));
+        encoded.merge(game.id, fresh, (old, current) -> old.version >= current.version ? old : current);
+        return fresh.data;
+    }
+
+    @Scheduled(every = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void purge() {
+        encoded.keySet().removeIf(gameId -> !service.isLive(gameId.intValue()));
+    }
+
+    private static class Encoded {
+        final long version;
+        final byte[] data;
+
+        Encoded(long version, byte[] data) {
+            this.version = version;
+            this.data = data;
+        }
+    }
+}
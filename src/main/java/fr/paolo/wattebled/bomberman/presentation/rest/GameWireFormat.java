@@ -0,0 +1,154 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+
+import javax.ws.rs.core.MediaType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a game, sent instead of JSON to the clients accepting
+ * application/x-jws-game. Big endian, strings prefixed by their length in bytes:
+ * <pre>
+ * u8  format (1)          i64 id          i64 version
+ * u8  state (GameState ordinal)           u8 mode (GameMode ordinal)
+ * i64 start time in epoch milliseconds, -1 when not started
+ * u16 width, u16 height, u8 number of tile kinds, the tile kinds in ASCII
+ * u8  bits per tile (2, 4 or 8), then every tile row by row as its index among the kinds,
+ *     packed from the high bits, the last byte padded with zeros
+ * u8  players, then per player: i64 id, u8 lives, u16 posX, u16 posY, u16 length, the name in UTF-8
+ * </pre>
+ */
+public class GameWireFormat {
+    public static final String MEDIA_TYPE = "application/x-jws-game";
+    private static final int FORMAT = 1;
+
+    private static final MediaType TYPE = MediaType.valueOf(MEDIA_TYPE);
+
+    // True when the Accept header names this format and prefers it to JSON: its q value, taken
+    // from the most specific range matching it, is above 0 and at least the one of JSON.
+    // Wildcards alone keep JSON
+    public static boolean accepts(String accept) {
+        if (accept == null || !accept.contains(MEDIA_TYPE)) {
+            return false;
+        }
+
+        List<MediaType> ranges = new ArrayList<>();
+        for (String entry : accept.split(",")) {
+            try {
+                ranges.add(MediaType.valueOf(entry.trim()));
+            } catch (IllegalArgumentException e) {
+                // Malformed entry, ignored
+            }
+        }
+        float binary = quality(ranges, TYPE);
+        return binary > 0 && binary >= quality(ranges, MediaType.APPLICATION_JSON_TYPE);
+    }
+
+    // q value of the most specific range matching the type, 0 when none does
+    private static float quality(List<MediaType> ranges, MediaType type) {
+        float quality = 0;
+        int specificity = -1;
+        for (MediaType range : ranges) {
+            int rangeSpecificity = range.isWildcardType() ? 0 : range.isWildcardSubtype() ? 1 : 2;
+            if (range.isCompatible(type) && rangeSpecificity > specificity) {
+                specificity = rangeSpecificity;
+                quality = q(range);
+            }
+        }
+        return quality;
+    }
+
+    private static float q(MediaType range) {
+        String q = range.getParameters().get("q");
+        try {
+            return q == null ? 1 : Float.parseFloat(q);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static byte[] encode(GameEntity game) {
+        // The tiles are packed straight from the run-length encoded rows, without decoding the board
+        List<String> rows = game.map;
+        int[] index = new int[256];
+        Arrays.fill(index, -1);
+        StringBuilder kinds = new StringBuilder();
+        int width = 0;
+        for (int y = 0; y < rows.size(); y++) {
+            String row = rows.get(y);
+            for (int i = 0; i + 1 < row.length(); i += 2) {
+                if (y == 0) {
+                    width += Character.getNumericValue(row.charAt(i));
+                }
+                // Kinds in order of first appearance, so the same board always gets the same indexes
+                char tile = row.charAt(i + 1);
+                if (index[tile & 0xFF] < 0) {
+                    index[tile & 0xFF] = kinds.length();
+                    kinds.append(tile);
+                }
+            }
+        }
+        int bits = kinds.length() <= 4 ? 2 : kinds.length() <= 16 ? 4 : 8;
+
+        byte[][] names = new byte[game.players.size()][];
+        int size = 1 + 8 + 8 + 1 + 1 + 8 + 2 + 2 + 1 + kinds.length() + 1
+                + (width * rows.size() * bits + 7) / 8 + 1;
+        for (int i = 0; i < names.length; i++) {
+            String name = game.players.get(i).name;
+            names[i] = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+            size += 8 + 1 + 2 + 2 + 2 + names[i].length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put((byte) FORMAT);
+        out.putLong(game.id);
+        out.putLong(game.version);
+        out.put((byte) (game.state == null ? 0 : game.state.ordinal()));
+        out.put((byte) (game.mode == null ? 0 : game.mode.ordinal()));
+        out.putLong(game.startTime == null ? -1 : game.startTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        out.putShort((short) width);
+        out.putShort((short) rows.size());
+        out.put((byte) kinds.length());
+        out.put(kinds.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.put((byte) bits);
+        int packed = 0;
+        int used = 0;
+        for (String row : rows) {
+            for (int i = 0; i + 1 < row.length(); i += 2) {
+                int count = Character.getNumericValue(row.charAt(i));
+                int tile = index[row.charAt(i + 1) & 0xFF];
+                for (int j = 0; j < count; j++) {
+                    packed = (packed << bits) | tile;
+                    used += bits;
+                    if (used == 8) {
+                        out.put((byte) packed);
+                        packed = 0;
+                        used = 0;
+                    }
+                }
+            }
+        }
+        if (used > 0) {
+            out.put((byte) (packed << (8 - used)));
+        }
+
+        out.put((byte) names.length);
+        for (int i = 0; i < names.length; i++) {
+            PlayerEntity player = game.players.get(i);
+            out.putLong(player.id);
+            out.put((byte) Math.max(0, player.lives));
+            out.putShort((short) player.posX);
+            out.putShort((short) player.posY);
+            out.putShort((short) names[i].length);
+            out.put(names[i]);
+        }
+        return out.array();
+    }
+}
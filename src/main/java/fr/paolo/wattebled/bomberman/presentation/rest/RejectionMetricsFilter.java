@@ -0,0 +1,33 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+// Counts the 4xx answers of every endpoint, tagged by endpoint and status
+@Provider
+public class RejectionMetricsFilter implements ContainerResponseFilter {
+    @Inject
+    MeterRegistry registry;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        int status = response.getStatus();
+        if (status < 400 || status >= 500 || resourceInfo.getResourceMethod() == null) {
+            return;
+        }
+
+        registry.counter("jws.rejections",
+                "endpoint", resourceInfo.getResourceMethod().getName(),
+                "status", String.valueOf(status)).increment();
+    }
+}
@@ -0,0 +1,18 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.request;
+
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+
+@RegisterForReflection
+public class ActionsRequest {
+    public List<Action> actions;
+
+    @RegisterForReflection
+    public static class Action {
+        public ActionType type;
+        public Integer posX;
+        public Integer posY;
+    }
+}
@@ -1,5 +1,8 @@
 package fr.paolo.wattebled.bomberman.presentation.rest.request;
 
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
 public class CoordsRequest {
     public Integer posX;
     public Integer posY;
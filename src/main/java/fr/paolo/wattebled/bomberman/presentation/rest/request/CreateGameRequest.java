@@ -0,0 +1,11 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.request;
+
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+@RegisterForReflection
+public class CreateGameRequest {
+    public String name;
+    public String map;
+    public GameMode mode;
+}
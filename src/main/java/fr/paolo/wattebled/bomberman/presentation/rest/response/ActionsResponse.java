@@ -0,0 +1,24 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.response;
+
+import fr.paolo.wattebled.bomberman.utils.ActionType;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActionsResponse {
+    public List<Result> results;
+    public DetailGameResponse game;
+
+    @RegisterForReflection
+    @AllArgsConstructor
+    public static class Result {
+        public ActionType type;
+        public int status;
+        public long tick;
+    }
+}
@@ -0,0 +1,25 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.response;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class DangerResponse {
+    public Long id;
+    public long tick;
+    public int tickDuration;
+    public List<Cell> cells;
+
+    @RegisterForReflection
+    @AllArgsConstructor
+    public static class Cell {
+        public int posX;
+        public int posY;
+        public long tick;
+    }
+}
@@ -0,0 +1,40 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeltaGameResponse {
+    public Long id;
+    public long since;
+    public long version;
+    public GameState state;
+    public List<Cell> cells;
+    public List<Player> players;
+
+    @RegisterForReflection
+    @AllArgsConstructor
+    public static class Cell {
+        public int posX;
+        public int posY;
+        public String tile;
+    }
+
+    @RegisterForReflection
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Player {
+        public Long id;
+        public Integer lives;
+        public Integer posX;
+        public Integer posY;
+    }
+}
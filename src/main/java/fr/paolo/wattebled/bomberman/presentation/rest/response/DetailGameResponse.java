@@ -1,12 +1,15 @@
 package fr.paolo.wattebled.bomberman.presentation.rest.response;
 
+import fr.paolo.wattebled.bomberman.utils.GameMode;
 import fr.paolo.wattebled.bomberman.utils.GameState;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+@RegisterForReflection
 @AllArgsConstructor
 @NoArgsConstructor
 public class DetailGameResponse {
@@ -15,7 +18,10 @@ public class DetailGameResponse {
     public List<Player> players;
     public List<String> map;
     public Long id;
+    public long version;
+    public GameMode mode;
 
+    @RegisterForReflection
     @AllArgsConstructor
     public static class Player {
         public Long id;
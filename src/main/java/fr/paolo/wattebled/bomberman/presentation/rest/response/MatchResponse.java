@@ -0,0 +1,13 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.response;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class MatchResponse {
+    public Long playerId;
+    public DetailGameResponse game;
+}
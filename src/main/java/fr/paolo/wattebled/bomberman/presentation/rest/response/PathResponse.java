@@ -0,0 +1,25 @@
+package fr.paolo.wattebled.bomberman.presentation.rest.response;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class PathResponse {
+    public Long id;
+    public long version;
+    public boolean reachable;
+    public List<Step> steps;
+
+    @RegisterForReflection
+    @AllArgsConstructor
+    public static class Step {
+        public int posX;
+        public int posY;
+        public int distance;
+    }
+}
@@ -1,9 +1,11 @@
 package fr.paolo.wattebled.bomberman.presentation.rest.response;
 
 import fr.paolo.wattebled.bomberman.utils.GameState;
+import io.quarkus.runtime.annotations.RegisterForReflection;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
+@RegisterForReflection
 @AllArgsConstructor
 @NoArgsConstructor
 public class SimpleGameResponse {
@@ -0,0 +1,11 @@
+package fr.paolo.wattebled.bomberman.utils;
+
+public enum GameEventType {
+    CREATE,
+    JOIN,
+    START,
+    MOVE,
+    BOMB,
+    EXPLOSION,
+    SHRINK
+}
@@ -0,0 +1,50 @@
+package fr.paolo.wattebled.bomberman.utils;
+
+import java.util.Arrays;
+
+public class GameMap {
+    private final int width;
+    private final int height;
+    private final byte[] cells;
+
+    public GameMap(int width, int height) {
+        this(width, height, new byte[width * height]);
+    }
+
+    private GameMap(int width, int height, byte[] cells) {
+        this.width = width;
+        this.height = height;
+        this.cells = cells;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public char get(int x, int y) {
+        return (char) cells[index(x, y)];
+    }
+
+    public void set(int x, int y, char tile) {
+        cells[index(x, y)] = (byte) tile;
+    }
+
+    public GameMap copy() {
+        return new GameMap(width, height, Arrays.copyOf(cells, cells.length));
+    }
+
+    private int index(int x, int y) {
+        if (!inBounds(x, y)) {
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ") is outside of the map");
+        }
+        return y * width + x;
+    }
+}
@@ -0,0 +1,6 @@
+package fr.paolo.wattebled.bomberman.utils;
+
+public enum GameMode {
+    REALTIME,
+    TICK
+}
@@ -1,5 +1,8 @@
 package fr.paolo.wattebled.bomberman.utils;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -44,6 +47,55 @@ public class MapParsing {
         return res;
     }
 
+    // Timers of decodeGrid and encodeGrid, recorded by the beans calling them
+    public static Timer decodeTimer(MeterRegistry registry) {
+        return Timer.builder("jws.map.decode").publishPercentileHistogram().register(registry);
+    }
+
+    public static Timer encodeTimer(MeterRegistry registry) {
+        return Timer.builder("jws.map.encode").publishPercentileHistogram().register(registry);
+    }
+
+    public static GameMap decodeGrid(List<String> map) {
+        int width = 0;
+        String first = map.isEmpty() ? "" : map.get(0);
+        for (int i = 0; i < first.length(); i += 2) {
+            width += Character.getNumericValue(first.charAt(i));
+        }
+
+        GameMap res = new GameMap(width, map.size());
+        for (int y = 0; y < map.size(); ++y) {
+            String line = map.get(y);
+            int x = 0;
+            for (int i = 0; i < line.length(); i += 2) {
+                int count = Character.getNumericValue(line.charAt(i));
+                for (int j = 0; j < count; ++j) {
+                    res.set(x++, y, line.charAt(i + 1));
+                }
+            }
+        }
+        return res;
+    }
+
+    public static List<String> encodeGrid(GameMap map) {
+        List<String> res = new ArrayList<>(map.getHeight());
+        for (int y = 0; y < map.getHeight(); ++y) {
+            StringBuilder lineRes = new StringBuilder();
+            int x = 0;
+            while (x < map.getWidth()) {
+                char c = map.get(x, y);
+                int count = 1;
+                while (count < 9 && x + count < map.getWidth() && map.get(x + count, y) == c) {
+                    count++;
+                }
+                lineRes.append(count).append(c);
+                x += count;
+            }
+            res.add(lineRes.toString());
+        }
+        return res;
+    }
+
     public static List<String> getMap(String path) {
         List<String> map;
         try {
@@ -0,0 +1,87 @@
+package fr.paolo.wattebled.bomberman;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the packaged server with the fast profile, and its AppCDS archive when there is one,
+ * and fails when the median time to answer /q/health/ready goes over startup.budget-ms.
+ * Run by failsafe with -Pfast, after the package phase; the schema must already exist, as for
+ * any fast node. The server output goes to startup.log.
+ */
+class StartupTimeIT {
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Test
+    void startsWithinBudget() throws Exception {
+        Path jar = Path.of(System.getProperty("startup.jar", "target/quarkus-app/quarkus-run.jar")).toAbsolutePath();
+        long budget = Long.getLong("startup.budget-ms", 15000);
+        int runs = Integer.getInteger("startup.runs", 3);
+        int port = Integer.getInteger("startup.port", 8091);
+        Path log = Path.of(System.getProperty("startup.log", "target/startup-time.log")).toAbsolutePath();
+        assertTrue(Files.exists(jar), jar + " not found, run the package phase first");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // The archive only matches the jar when started from its directory, as it was created
+        if (Files.exists(jar.resolveSibling("app-cds.jsa"))) {
+            command.add("-XX:SharedArchiveFile=app-cds.jsa");
+        }
+        command.add("-Dquarkus.http.port=" + port);
+        command.add("-Dquarkus.profile=fast");
+        command.add("-jar");
+        command.add(jar.getFileName().toString());
+
+        List<Long> readyTimes = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            readyTimes.add(startOnce(command, jar.getParent(), port, log));
+        }
+        readyTimes.sort(null);
+        long median = readyTimes.get(readyTimes.size() / 2);
+        System.out.printf("Startup in ms over %d runs: %s, median %d, budget %d%n", runs, readyTimes, median, budget);
+        assertTrue(median <= budget, "median startup " + median + " ms is over the budget of " + budget + " ms");
+    }
+
+    private static long startOnce(List<String> command, Path directory, int port, Path log) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest ready = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/q/health/ready"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+
+        long start = System.nanoTime();
+        Process server = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log.toFile()))
+                .start();
+        try {
+            while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+                assertTrue(server.isAlive(), () -> "server exited with code " + server.exitValue() + ", see " + log);
+                try {
+                    if (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening, or not answering, yet
+                }
+                Thread.sleep(10);
+            }
+            return fail("not ready after " + TIMEOUT.toSeconds() + "s, see " + log);
+        } finally {
+            server.destroy();
+            server.waitFor();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.transaction.UserTransaction;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks when a running game is held by the engine with its timers: only once its start is
+ * committed, and again when it is loaded back after a restart.
+ */
+@QuarkusTest
+class GameLifecycleTest {
+    @Inject
+    GameService service;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    TickScheduler scheduler;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Test
+    void rolledBackStartLeavesNothingRunning() throws Exception {
+        transaction.begin();
+        GameEntity created;
+        try {
+            created = service.createMatch(List.of("a", "b"), null, GameMode.REALTIME);
+        } finally {
+            transaction.rollback();
+        }
+
+        assertNull(engine.find(created.id));
+        assertNull(engine.get(created.id));
+    }
+
+    @Test
+    void reloadedGameExplodesItsBombs() throws Exception {
+        GameEntity created = service.createMatch(List.of("a", "b"), null, GameMode.REALTIME);
+        int gameId = created.id.intValue();
+        PlayerEntity player = created.players.get(0);
+        service.plantBomb(gameId, player.id.intValue(), player.posX, player.posY);
+        engine.flush();
+
+        // What a restart leaves: the row only, no timer and nothing in memory
+        scheduler.cancelGame(gameId);
+        engine.evict(gameId);
+        assertNull(engine.find(gameId));
+
+        GameModel reloaded = engine.get(gameId);
+        assertEquals('B', reloaded.grid.get(player.posX, player.posY));
+        for (int i = 0; i < 100 && reloaded.grid.get(player.posX, player.posY) == 'B'; i++) {
+            Thread.sleep(50);
+        }
+
+        GameModel live = engine.snapshot(engine.find(gameId));
+        assertNotEquals('B', live.grid.get(player.posX, player.posY));
+        assertEquals(2, live.players.stream().filter(p -> p.id.equals(player.id)).findFirst().orElseThrow().lives);
+    }
+}
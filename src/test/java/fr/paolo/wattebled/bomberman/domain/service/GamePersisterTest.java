@@ -0,0 +1,73 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.converter.ModelCopier;
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The write-behind fencing of saveAll against the database: only snapshots newer than their row
+ * are written, only for games this node holds a lease on, and empty batches are no-ops.
+ */
+@QuarkusTest
+class GamePersisterTest {
+    @Inject
+    GameService service;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    GamePersister persister;
+
+    @Test
+    void emptyBatchesAreNoOps() {
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(List.of(), persister.saveAll(List.of(), null, now));
+        assertEquals(List.of(), persister.saveAll(List.of(), "node-a", now));
+        assertEquals(List.of(), persister.renewLeases("node-a", List.of(), now.plusSeconds(10)));
+        persister.releaseLeases("node-a", List.of());
+    }
+
+    @Test
+    void dropsStaleSnapshots() {
+        GameModel snapshot = snapshot(100);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(List.of(snapshot.id), persister.saveAll(List.of(snapshot), null, now));
+        assertEquals(snapshot.version, persister.loadRunning(snapshot.id).version);
+        // Same version as the row now, or older
+        assertEquals(List.of(), persister.saveAll(List.of(snapshot), null, now));
+        assertEquals(List.of(), persister.saveAll(List.of(snapshot.withVersion(snapshot.version - 1)), null, now));
+    }
+
+    @Test
+    void writesOnlyLeasedGames() {
+        GameModel snapshot = snapshot(100);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(List.of(), persister.saveAll(List.of(snapshot), "node-a", now));
+        persister.claimGame(snapshot.id, "node-b", "http://node-b", now, now.plusSeconds(10));
+        assertEquals(List.of(), persister.saveAll(List.of(snapshot), "node-a", now));
+        // Expired, taken over by node-a
+        persister.claimGame(snapshot.id, "node-a", "http://node-a", now.plusSeconds(11), now.plusSeconds(20));
+        assertEquals(List.of(snapshot.id), persister.saveAll(List.of(snapshot), "node-a", now));
+        assertEquals(List.of(), persister.saveAll(List.of(snapshot.withVersion(snapshot.version + 1)), "node-a", now.plusSeconds(21)));
+    }
+
+    // A copy of a new game, ahead of its row and of the engine by that many versions
+    private GameModel snapshot(long ahead) {
+        GameEntity created = service.createMatch(List.of("a", "b"), null, GameMode.REALTIME);
+        GameModel snapshot = ModelCopier.copyGame(engine.snapshot(engine.find(created.id)));
+        snapshot.version += ahead;
+        return snapshot;
+    }
+}
@@ -0,0 +1,56 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays a match from its event log, whose creation, joins and start are all logged by the
+ * same transaction, and checks it against the live game.
+ */
+@QuarkusTest
+class GameReplayerTest {
+    @Inject
+    GameService service;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    EventLog events;
+
+    @Inject
+    GameReplayer replayer;
+
+    @Test
+    void matchReplaysToItsLiveState() throws Exception {
+        GameEntity created = service.createMatch(List.of("a", "b", "c"), null, GameMode.REALTIME);
+        PlayerEntity player = created.players.get(0);
+        service.plantBomb(created.id.intValue(), player.id.intValue(), player.posX, player.posY);
+        GameModel live = engine.find(created.id);
+        for (int i = 0; i < 100 && live.grid.get(player.posX, player.posY) == 'B'; i++) {
+            Thread.sleep(50);
+        }
+        events.flush();
+
+        GameModel expected = engine.snapshot(live);
+        GameModel replayed = replayer.replay(created.id, Long.MAX_VALUE);
+        assertNotNull(replayed);
+        assertEquals(expected.version, replayed.version);
+        assertEquals(expected.map, replayed.map);
+        assertEquals(3, replayed.players.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected.players.get(i).id, replayed.players.get(i).id);
+            assertEquals(expected.players.get(i).lives, replayed.players.get(i).lives);
+        }
+        assertEquals(2, replayed.players.get(0).lives);
+    }
+}
@@ -0,0 +1,61 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A bomb planted on the cells of the next metal ring, then buried by the shrink before its fuse
+ * runs out.
+ */
+class GameRulesTest {
+    private static final List<String> BOARD = List.of("7M", "1M5G1M", "1M5G1M", "1M5G1M", "1M5G1M", "1M5G1M", "7M");
+
+    @Test
+    void shrinkDropsBuriedBombs() {
+        GameModel game = game();
+        BombField bombs = new BombField(7, 7);
+        plant(game, bombs, 1, 1, 10);
+
+        GameRules.shrink(game);
+        bombs.refresh(game.grid);
+
+        assertTrue(bombs.isEmpty());
+        assertEquals(Long.MAX_VALUE, bombs.dangerAt(2, 1));
+        assertTrue(bombs.detonate(game.grid, 1, 1, 10).isEmpty());
+        assertEquals('M', game.grid.get(1, 1));
+    }
+
+    @Test
+    void blastKeepsMetalOnItsCentre() {
+        GameModel game = game();
+        BombField bombs = new BombField(7, 7);
+        plant(game, bombs, 1, 1, 10);
+        List<int[]> blasts = bombs.detonate(game.grid, 1, 1, 10);
+
+        // The shrink lands between the detonation and the blast
+        GameRules.shrink(game);
+        blasts.forEach(blast -> GameRules.explode(game, blast));
+
+        for (int i = 1; i < 6; i++) {
+            assertEquals('M', game.grid.get(i, 1));
+            assertEquals('M', game.grid.get(1, i));
+        }
+    }
+
+    private static GameModel game() {
+        GameMap grid = MapParsing.decodeGrid(BOARD);
+        return new GameModel().withPlayers(new ArrayList<>()).withGrid(grid);
+    }
+
+    private static void plant(GameModel game, BombField bombs, int x, int y, long dueTick) {
+        game.grid.set(x, y, 'B');
+        bombs.plant(game.grid, x, y, 1, dueTick);
+    }
+}
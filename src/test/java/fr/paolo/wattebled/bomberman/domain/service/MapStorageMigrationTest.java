@@ -0,0 +1,176 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.MapTemplate;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the board migration on a game_map table left by an older schema, and checks that a
+ * board is only moved when its lines, in order, can come from the map template, and that
+ * game_map is only dropped once every board was moved.
+ */
+@QuarkusTest
+class MapStorageMigrationTest {
+    @Inject
+    MapStorageMigration migration;
+
+    @Inject
+    MapLibrary maps;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    UserTransaction transaction;
+
+    private final List<Long> games = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        inTransaction(() -> {
+            em.createNativeQuery("drop table if exists game_map").executeUpdate();
+            for (Long id : games) {
+                em.createNativeQuery("delete from game where id = ?1").setParameter(1, id).executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void movesBoardsAndDropsGameMap() throws Exception {
+        List<String> rows = maps.get("map1").rows;
+        long gameId = oldGame(rows);
+
+        migration.migrate(null);
+
+        assertEquals(String.join("\n", rows), board(gameId));
+        assertFalse(gameMapExists());
+    }
+
+    @Test
+    void movesPlayedBoards() throws Exception {
+        // A wall blown up, a bomb planted and the outer ring shrunk
+        GameModel game = new GameModel().withPlayers(new ArrayList<>()).withGrid(MapParsing.decodeGrid(maps.get("map1").rows));
+        game.grid.set(3, 1, 'G');
+        game.grid.set(7, 5, 'B');
+        GameRules.shrink(game);
+        List<String> rows = MapParsing.encodeGrid(game.grid);
+        long gameId = oldGame(rows, game.shrinkLevel);
+
+        migration.migrate(null);
+
+        assertEquals(String.join("\n", rows), board(gameId));
+        assertFalse(gameMapExists());
+    }
+
+    @Test
+    void keepsGameMapWhenLinesDoNotRebuildTheTemplate() throws Exception {
+        MapTemplate template = maps.get("map1");
+        long valid = oldGame(template.rows);
+        List<String> swapped = new ArrayList<>(template.rows);
+        Collections.swap(swapped, 1, 2);
+        long shuffled = oldGame(swapped);
+        // Same metal on both lines, only their walls and ground tell them apart
+        List<String> mirrored = new ArrayList<>(template.rows);
+        Collections.swap(mirrored, 1, 13);
+        long sameMetal = oldGame(mirrored);
+        long truncated = oldGame(template.rows.subList(0, template.height - 1));
+        // Metal on the outer ring of a game that never shrunk
+        GameModel game = new GameModel().withPlayers(new ArrayList<>()).withGrid(MapParsing.decodeGrid(template.rows));
+        GameRules.shrink(game);
+        long notShrunk = oldGame(MapParsing.encodeGrid(game.grid));
+
+        migration.migrate(null);
+
+        assertEquals(String.join("\n", template.rows), board(valid));
+        assertNull(board(shuffled));
+        assertNull(board(sameMetal));
+        assertNull(board(truncated));
+        assertNull(board(notShrunk));
+        assertTrue(gameMapExists());
+    }
+
+    @Test
+    void readsLinesByTheirOrderColumn() throws Exception {
+        List<String> rows = maps.get("map1").rows;
+        long gameId = oldGame(rows);
+        // Rewritten in reverse, so only map_order still gives the lines back in order
+        inTransaction(() -> {
+            em.createNativeQuery("alter table game_map add column map_order int").executeUpdate();
+            em.createNativeQuery("delete from game_map where game_id = ?1").setParameter(1, gameId).executeUpdate();
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                em.createNativeQuery("insert into game_map (game_id, map, map_order) values (?1, ?2, ?3)")
+                        .setParameter(1, gameId)
+                        .setParameter(2, rows.get(i))
+                        .setParameter(3, i)
+                        .executeUpdate();
+            }
+            return null;
+        });
+
+        migration.migrate(null);
+
+        assertEquals(String.join("\n", rows), board(gameId));
+        assertFalse(gameMapExists());
+    }
+
+    private long oldGame(List<String> rows) throws Exception {
+        return oldGame(rows, 0);
+    }
+
+    // A game stored before the board column, its lines in game_map
+    private long oldGame(List<String> rows, int shrinkLevel) throws Exception {
+        long id = inTransaction(() -> {
+            em.createNativeQuery("create table if not exists game_map (game_id bigint not null, map varchar(255))").executeUpdate();
+            long gameId = ((Number) em.createNativeQuery("insert into game (version, tick, playercount, shrinklevel, mapname) "
+                    + "values (0, 0, 0, ?1, 'map1') returning id").setParameter(1, shrinkLevel).getSingleResult()).longValue();
+            for (String row : rows) {
+                em.createNativeQuery("insert into game_map (game_id, map) values (?1, ?2)")
+                        .setParameter(1, gameId)
+                        .setParameter(2, row)
+                        .executeUpdate();
+            }
+            return gameId;
+        });
+        games.add(id);
+        return id;
+    }
+
+    private String board(long gameId) throws Exception {
+        byte[] board = inTransaction(() -> (byte[]) em.createNativeQuery("select board from game where id = ?1")
+                .setParameter(1, gameId)
+                .getSingleResult());
+        return board == null ? null : new String(board, StandardCharsets.UTF_8);
+    }
+
+    private boolean gameMapExists() throws Exception {
+        return inTransaction(() -> ((Number) em.createNativeQuery("select count(*) from information_schema.tables "
+                + "where table_schema = current_schema() and table_name = 'game_map'").getSingleResult()).intValue() == 1);
+    }
+
+    private <T> T inTransaction(Callable<T> work) throws Exception {
+        transaction.begin();
+        try {
+            T result = work.call();
+            transaction.commit();
+            return result;
+        } catch (Exception e) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+}
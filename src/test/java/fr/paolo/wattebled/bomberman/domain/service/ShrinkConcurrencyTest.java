@@ -0,0 +1,125 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts a hundred games at once on the arena map, shrinking as set by {@link ShrinkingProfile},
+ * and checks that every board shrinks on its own schedule: its shrink level follows its own
+ * ticks, it has exactly that many metal rings, and its last ring buries the centre.
+ */
+@QuarkusTest
+@TestProfile(ShrinkingProfile.class)
+class ShrinkConcurrencyTest {
+    private static final int GAMES = 100;
+    private static final int CENTRE = 7;
+
+    @Inject
+    GameService service;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    MapLibrary maps;
+
+    @ConfigProperty(name = "JWS_DELAY_FREE")
+    int delayFree;
+
+    @ConfigProperty(name = "JWS_DELAY_SHRINK")
+    int delayShrink;
+
+    @Test
+    void everyBoardShrinksOnItsOwnSchedule() throws Exception {
+        GameMap arena = MapParsing.decodeGrid(maps.get("arena").rows);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Long>> starts = new ArrayList<>();
+        for (int i = 0; i < GAMES; i++) {
+            String suffix = String.valueOf(i);
+            starts.add(pool.submit(() -> startInTheCentre(suffix)));
+        }
+        List<Long> gameIds = new ArrayList<>();
+        for (Future<Long> start : starts) {
+            gameIds.add(start.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        // Midway, every game at the level of its own ticks
+        awaitUntil(() -> gameIds.stream().allMatch(id -> shrinkLevel(id) >= 2));
+        for (long id : gameIds) {
+            GameModel live = engine.find(id);
+            assertNotNull(live, "game " + id + " ended before its last ring");
+            GameModel game = engine.snapshot(live);
+            // Its last change is its last shrink
+            assertEquals(Math.round((game.tick - delayFree) / (double) delayShrink) + 1, game.shrinkLevel,
+                    "shrink level of game " + id + " at tick " + game.tick);
+            assertRings(arena, game.grid, game.shrinkLevel, id);
+        }
+
+        awaitUntil(() -> gameIds.stream().allMatch(id -> service.getGameById(id.intValue()).state == GameState.FINISHED));
+        for (long id : gameIds) {
+            assertRings(arena, MapParsing.decodeGrid(service.getGameById((int) id).map), CENTRE, id);
+        }
+    }
+
+    // Both players walk along the first row, then down the middle column, both clear of walls
+    private long startInTheCentre(String suffix) {
+        GameEntity game = service.createMatch(List.of("left" + suffix, "right" + suffix), "arena", GameMode.REALTIME);
+        int gameId = game.id.intValue();
+        for (PlayerEntity player : game.players) {
+            int x = player.posX;
+            int y = player.posY;
+            while (x != CENTRE || y != CENTRE) {
+                if (x != CENTRE) {
+                    x += Integer.signum(CENTRE - x);
+                } else {
+                    y += Integer.signum(CENTRE - y);
+                }
+                assertTrue(service.movePlayer(gameId, player.id.intValue(), x, y));
+            }
+        }
+        return game.id;
+    }
+
+    private int shrinkLevel(long gameId) {
+        GameModel live = engine.find(gameId);
+        return live == null ? Integer.MAX_VALUE : engine.snapshot(live).shrinkLevel;
+    }
+
+    // Metal up to the given ring, counted from the border, the untouched arena inside it
+    private static void assertRings(GameMap arena, GameMap grid, int level, long gameId) {
+        for (int y = 0; y < grid.getHeight(); y++) {
+            for (int x = 0; x < grid.getWidth(); x++) {
+                int ring = Math.min(Math.min(x, y), Math.min(grid.getWidth() - 1 - x, grid.getHeight() - 1 - y));
+                assertEquals(ring <= level ? 'M' : arena.get(x, y), grid.get(x, y), "cell " + x + "," + y + " of game " + gameId);
+            }
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 300 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
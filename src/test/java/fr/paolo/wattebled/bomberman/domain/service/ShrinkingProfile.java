@@ -0,0 +1,18 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+import java.util.Map;
+
+/**
+ * Games that shrink every second after five seconds of play, long enough for players to walk
+ * to the centre of the arena map, where they live through every ring but the last one.
+ */
+public class ShrinkingProfile implements QuarkusTestProfile {
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+                "JWS_DELAY_FREE", "250",
+                "JWS_DELAY_SHRINK", "50");
+    }
+}
@@ -0,0 +1,94 @@
+package fr.paolo.wattebled.bomberman.domain.service;
+
+import fr.paolo.wattebled.bomberman.data.model.GameModel;
+import fr.paolo.wattebled.bomberman.data.model.PlayerModel;
+import fr.paolo.wattebled.bomberman.domain.entity.GameEntity;
+import fr.paolo.wattebled.bomberman.domain.entity.PlayerEntity;
+import fr.paolo.wattebled.bomberman.utils.GameMode;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs concurrent moves against one game while the write-behind flush runs, then checks that
+ * the row left in the database is the state the engine holds.
+ */
+@QuarkusTest
+class WriteBehindConcurrencyTest {
+    private static final int THREADS_PER_PLAYER = 4;
+    private static final int MOVES = 200;
+
+    @Inject
+    GameService service;
+
+    @Inject
+    GameEngine engine;
+
+    @Inject
+    GamePersister persister;
+
+    @Test
+    void flushedGameMatchesTheEngine() throws Exception {
+        GameEntity created = service.createMatch(List.of("a", "b", "c", "d"), null, GameMode.REALTIME);
+        int gameId = created.id.intValue();
+
+        ExecutorService pool = Executors.newFixedThreadPool(created.players.size() * THREADS_PER_PLAYER + 1);
+        List<Future<?>> runs = new ArrayList<>();
+        for (PlayerEntity player : created.players) {
+            for (int i = 0; i < THREADS_PER_PLAYER; i++) {
+                runs.add(pool.submit(() -> wander(gameId, player.id.intValue())));
+            }
+        }
+        // Flushes while the moves are applied, on top of the scheduled ones
+        runs.add(pool.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                engine.flush();
+                Thread.sleep(5);
+            }
+            return null;
+        }));
+        for (Future<?> run : runs) {
+            run.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        engine.flush();
+
+        GameModel live = engine.snapshot(engine.find(gameId));
+        GameModel stored = persister.loadRunning(gameId);
+        assertNotNull(stored);
+        assertEquals(live.version, stored.version);
+        assertEquals(live.map, stored.map);
+        assertEquals(live.players.size(), stored.players.size());
+        for (PlayerModel player : live.players) {
+            PlayerModel saved = stored.players.stream().filter(p -> p.id.equals(player.id)).findFirst().orElseThrow();
+            assertEquals(player.lives, saved.lives);
+            assertEquals(player.posX, saved.posX, "posX of player " + player.id);
+            assertEquals(player.posY, saved.posY, "posY of player " + player.id);
+        }
+    }
+
+    // Moves to a free neighbour cell, racing the other threads of the same player
+    private void wander(int gameId, int playerId) {
+        for (int i = 0; i < MOVES; i++) {
+            GameEntity game = service.getLiveGame(gameId);
+            PlayerEntity player = game.players.stream().filter(p -> p.id == playerId).findFirst().orElseThrow();
+            int[][] neighbours = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+            int[] step = neighbours[(i + playerId) % neighbours.length];
+            try {
+                service.movePlayer(gameId, playerId, player.posX + step[0], player.posY + step[1]);
+            } catch (BadRequestException | ArithmeticException e) {
+                // Wall, or another thread of this player moved first
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A second bomb within the cooldown gets a 429 telling the exact wait in milliseconds, next to
+ * the Retry-After in whole seconds.
+ */
+@QuarkusTest
+class CooldownHeadersTest {
+    @Test
+    void tooManyRequestsGivesTheRemainingMillis() {
+        int gameId = given().contentType(ContentType.JSON).body(Map.of("name", "a"))
+                .post("/games")
+                .then().statusCode(200)
+                .extract().path("id");
+        given().contentType(ContentType.JSON).body(Map.of("name", "b")).post("/games/" + gameId).then().statusCode(200);
+        JsonPath started = given().patch("/games/" + gameId + "/start").then().statusCode(200).extract().jsonPath();
+        int playerId = started.getInt("players[0].id");
+        Map<String, Integer> cell = Map.of("posX", started.getInt("players[0].posX"), "posY", started.getInt("players[0].posY"));
+
+        given().contentType(ContentType.JSON).body(cell).post("/games/" + gameId + "/players/" + playerId + "/bomb")
+                .then().statusCode(200);
+        Response refused = given().contentType(ContentType.JSON).body(cell).post("/games/" + gameId + "/players/" + playerId + "/bomb");
+
+        // JWS_DELAY_BOMB of 50 ticks of 20 ms in the test profile
+        assertEquals(429, refused.statusCode());
+        long millis = Long.parseLong(refused.header(Endpoint.RETRY_AFTER_MS));
+        assertTrue(millis > 0 && millis <= 1000, "waits " + millis + " ms");
+        assertEquals("1", refused.header("Retry-After"));
+    }
+}
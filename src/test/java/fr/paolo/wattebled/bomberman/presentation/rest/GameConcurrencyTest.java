@@ -0,0 +1,269 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import fr.paolo.wattebled.bomberman.domain.service.GameService;
+import fr.paolo.wattebled.bomberman.utils.GameMap;
+import fr.paolo.wattebled.bomberman.utils.GameState;
+import fr.paolo.wattebled.bomberman.utils.MapParsing;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fires concurrent joins, moves, bombs and shrinks at one game through the REST API, and checks
+ * that no join goes past four players, that every player ends where its last accepted move put
+ * it, and that the lives and the board match the sequential replay of the game's events.
+ */
+@QuarkusTest
+class GameConcurrencyTest {
+    private static final int JOINERS = 16;
+    private static final int MOVES = 100;
+    private static final int CENTRE = 7;
+    private static final int SHRINKS = 5;
+    private static final long FIGHT_SECONDS = 4;
+    // Cell next to the centre each player goes back and forth to, none of them in the shrunk rings
+    private static final int[][] SIDES = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    @Inject
+    GameService service;
+
+    @Test
+    void concurrentJoinsKeepFourPlayers() throws Exception {
+        int gameId = given().contentType(ContentType.JSON).body(Map.of("name", "host"))
+                .post("/games")
+                .then().statusCode(200)
+                .extract().path("id");
+
+        ExecutorService pool = Executors.newFixedThreadPool(JOINERS);
+        AtomicInteger joined = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<?>> joins = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            String name = "player" + i;
+            joins.add(pool.submit(() -> {
+                int status = given().contentType(ContentType.JSON).body(Map.of("name", name))
+                        .post("/games/" + gameId)
+                        .statusCode();
+                (status == 200 ? joined : refused).incrementAndGet();
+                assertTrue(status == 200 || status == 400, "join answered " + status);
+            }));
+        }
+        for (Future<?> join : joins) {
+            join.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(3, joined.get());
+        assertEquals(JOINERS - 3, refused.get());
+        JsonPath game = given().get("/games/" + gameId).then().statusCode(200).extract().jsonPath();
+        List<Map<String, Object>> players = game.getList("players");
+        assertEquals(4, players.size());
+        assertEquals(4, players.stream().map(p -> p.get("posX") + "," + p.get("posY")).distinct().count());
+    }
+
+    @Test
+    void concurrentMovesKeepPositionsConsistent() throws Exception {
+        int gameId = given().contentType(ContentType.JSON).body(Map.of("name", "p0"))
+                .post("/games")
+                .then().statusCode(200)
+                .extract().path("id");
+        for (int i = 1; i < 4; i++) {
+            given().contentType(ContentType.JSON).body(Map.of("name", "p" + i)).post("/games/" + gameId).then().statusCode(200);
+        }
+        JsonPath started = given().patch("/games/" + gameId + "/start").then().statusCode(200).extract().jsonPath();
+        GameMap grid = MapParsing.decodeGrid(started.getList("map", String.class));
+        List<Integer> playerIds = started.getList("players.id", Integer.class);
+
+        // One mover per player, so its last accepted move is known, and late joiners and readers racing them
+        ExecutorService pool = Executors.newFixedThreadPool(playerIds.size() + 4);
+        Map<Integer, int[]> expected = new HashMap<>();
+        List<Future<?>> runs = new ArrayList<>();
+        for (int index = 0; index < playerIds.size(); index++) {
+            int playerId = playerIds.get(index);
+            int[] position = {started.getInt("players[" + index + "].posX"), started.getInt("players[" + index + "].posY")};
+            expected.put(playerId, position);
+            runs.add(pool.submit(() -> wander(gameId, playerId, grid, position)));
+        }
+        for (int i = 0; i < 2; i++) {
+            runs.add(pool.submit(() -> {
+                for (int j = 0; j < MOVES; j++) {
+                    given().contentType(ContentType.JSON).body(Map.of("name", "late")).post("/games/" + gameId).then().statusCode(400);
+                }
+            }));
+            runs.add(pool.submit(() -> {
+                for (int j = 0; j < MOVES; j++) {
+                    given().get("/games/" + gameId).then().statusCode(200);
+                }
+            }));
+        }
+        for (Future<?> run : runs) {
+            run.get(120, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        JsonPath game = given().get("/games/" + gameId).then().statusCode(200).extract().jsonPath();
+        assertEquals(4, game.getList("players").size());
+        for (int index = 0; index < 4; index++) {
+            int[] position = expected.get(game.getInt("players[" + index + "].id"));
+            assertEquals(position[0], game.getInt("players[" + index + "].posX"));
+            assertEquals(position[1], game.getInt("players[" + index + "].posY"));
+        }
+    }
+
+    @Test
+    void bombsAndShrinksMatchTheReplay() throws Exception {
+        int gameId = given().contentType(ContentType.JSON).body(Map.of("name", "p0", "map", "arena"))
+                .post("/games")
+                .then().statusCode(200)
+                .extract().path("id");
+        for (int i = 1; i < 4; i++) {
+            given().contentType(ContentType.JSON).body(Map.of("name", "p" + i)).post("/games/" + gameId).then().statusCode(200);
+        }
+        JsonPath started = given().patch("/games/" + gameId + "/start").then().statusCode(200).extract().jsonPath();
+        List<Integer> playerIds = started.getList("players.id", Integer.class);
+
+        // Everyone meets in the centre, inside the rings shrunk below
+        for (int index = 0; index < playerIds.size(); index++) {
+            walkToCentre(gameId, playerIds.get(index),
+                    started.getInt("players[" + index + "].posX"), started.getInt("players[" + index + "].posY"));
+        }
+
+        // Players bombing each other, the scheduler exploding the bombs, and shrinks racing both
+        ExecutorService pool = Executors.newFixedThreadPool(playerIds.size() + 1);
+        AtomicInteger planted = new AtomicInteger();
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(FIGHT_SECONDS);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int index = 0; index < playerIds.size(); index++) {
+            int playerId = playerIds.get(index);
+            int[] side = {CENTRE + SIDES[index][0], CENTRE + SIDES[index][1]};
+            runs.add(pool.submit(() -> {
+                fight(gameId, playerId, side, until, planted);
+                return null;
+            }));
+        }
+        runs.add(pool.submit(() -> {
+            for (int i = 0; i < SHRINKS; i++) {
+                Thread.sleep(500);
+                service.shrinkMap(gameId);
+            }
+            return null;
+        }));
+        for (Future<?> run : runs) {
+            run.get(120, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Until the last bombs went off, or the game ended with them
+        awaitUntil(() -> {
+            JsonPath game = given().get("/games/" + gameId).then().statusCode(200).extract().jsonPath();
+            return game.getString("state").equals(GameState.FINISHED.name())
+                    || game.getList("map", String.class).stream().noneMatch(row -> row.contains("B"));
+        });
+        JsonPath live = given().get("/games/" + gameId).then().statusCode(200).extract().jsonPath();
+        // Until the event log caught up with the game
+        awaitUntil(() -> {
+            Response replay = given().get("/games/" + gameId + "/replay");
+            return replay.statusCode() == 200 && replay.jsonPath().getLong("version") == live.getLong("version");
+        });
+        JsonPath replayed = given().get("/games/" + gameId + "/replay").then().statusCode(200).extract().jsonPath();
+
+        // Some blasts hit players and some shrinks went through
+        assertTrue(planted.get() > 0);
+        assertTrue(players(live).values().stream().mapToInt(p -> p.get(0)).sum() < 3 * playerIds.size());
+        assertEquals('M', MapParsing.decodeGrid(live.getList("map", String.class)).get(1, 1));
+        assertEquals(live.getList("map", String.class), replayed.getList("map", String.class));
+        assertEquals(players(live), players(replayed));
+    }
+
+    // Along the first row, then down the middle column, both clear of the arena's walls
+    private void walkToCentre(int gameId, int playerId, int x, int y) {
+        while (x != CENTRE || y != CENTRE) {
+            if (x != CENTRE) {
+                x += Integer.signum(CENTRE - x);
+            } else {
+                y += Integer.signum(CENTRE - y);
+            }
+            given().contentType(ContentType.JSON).body(Map.of("posX", x, "posY", y))
+                    .post("/games/" + gameId + "/players/" + playerId + "/move")
+                    .then().statusCode(200);
+        }
+    }
+
+    // Plants a bomb whenever its cooldown allows, and steps between the centre and its side, once per tick
+    private void fight(int gameId, int playerId, int[] side, long until, AtomicInteger planted) throws InterruptedException {
+        int[] position = {CENTRE, CENTRE};
+        while (System.nanoTime() - until < 0) {
+            int status = given().contentType(ContentType.JSON).body(Map.of("posX", position[0], "posY", position[1]))
+                    .post("/games/" + gameId + "/players/" + playerId + "/bomb")
+                    .statusCode();
+            assertTrue(status == 200 || status == 400 || status == 404 || status == 429, "bomb answered " + status);
+            if (status == 200) {
+                planted.incrementAndGet();
+            }
+
+            int[] target = position[0] == CENTRE && position[1] == CENTRE ? side : new int[]{CENTRE, CENTRE};
+            status = given().contentType(ContentType.JSON).body(Map.of("posX", target[0], "posY", target[1]))
+                    .post("/games/" + gameId + "/players/" + playerId + "/move")
+                    .statusCode();
+            assertTrue(status == 200 || status == 400 || status == 404 || status == 429, "move answered " + status);
+            if (status == 200) {
+                position = target;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    // Lives and position of every player, by id
+    private static Map<Integer, List<Integer>> players(JsonPath game) {
+        Map<Integer, List<Integer>> players = new HashMap<>();
+        for (int index = 0; index < game.getList("players").size(); index++) {
+            players.put(game.getInt("players[" + index + "].id"), List.of(
+                    game.getInt("players[" + index + "].lives"),
+                    game.getInt("players[" + index + "].posX"),
+                    game.getInt("players[" + index + "].posY")));
+        }
+        return players;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    // Goes back and forth to the free neighbours, keeping the position of the last accepted move
+    private void wander(int gameId, int playerId, GameMap grid, int[] position) {
+        int[][] neighbours = {{1, 0}, {0, 1}, {-1, 0}, {0, -1}};
+        for (int i = 0; i < MOVES; i++) {
+            int[] step = neighbours[i % neighbours.length];
+            int x = position[0] + step[0];
+            int y = position[1] + step[1];
+            if (!grid.inBounds(x, y) || grid.get(x, y) != 'G') {
+                continue;
+            }
+
+            int status = given().contentType(ContentType.JSON).body(Map.of("posX", x, "posY", y))
+                    .post("/games/" + gameId + "/players/" + playerId + "/move")
+                    .statusCode();
+            assertTrue(status == 200 || status == 429, "move answered " + status);
+            if (status == 200) {
+                position[0] = x;
+                position[1] = y;
+            }
+        }
+    }
+}
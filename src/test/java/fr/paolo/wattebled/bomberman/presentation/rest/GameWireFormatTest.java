@@ -0,0 +1,30 @@
+package fr.paolo.wattebled.bomberman.presentation.rest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Accept headers choosing between JSON and the binary format, by their q values.
+ */
+class GameWireFormatTest {
+    @Test
+    void binaryWhenPreferred() {
+        assertTrue(GameWireFormat.accepts("application/x-jws-game"));
+        assertTrue(GameWireFormat.accepts("application/x-jws-game, application/json"));
+        assertTrue(GameWireFormat.accepts("application/json;q=0.5, application/x-jws-game"));
+        assertTrue(GameWireFormat.accepts("application/x-jws-game;q=0.8, */*;q=0.1"));
+    }
+
+    @Test
+    void jsonOtherwise() {
+        assertFalse(GameWireFormat.accepts(null));
+        assertFalse(GameWireFormat.accepts("*/*"));
+        assertFalse(GameWireFormat.accepts("application/json"));
+        assertFalse(GameWireFormat.accepts("application/x-jws-game;q=0"));
+        assertFalse(GameWireFormat.accepts("*/*, application/x-jws-game;q=0"));
+        assertFalse(GameWireFormat.accepts("application/x-jws-game;q=0.5, application/json"));
+        assertFalse(GameWireFormat.accepts("application/x-jws-game;q=0.5, application/*"));
+        assertFalse(GameWireFormat.accepts("application/x-jws-game-v2"));
+    }
+}